@@ -0,0 +1,63 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.benchmark;
+
+import com.evilco.bukkit.util.plugin.command.CommandContext;
+import com.evilco.bukkit.util.plugin.command.annotation.Command;
+import com.evilco.bukkit.util.plugin.command.annotation.CommandHandler;
+import org.bukkit.command.CommandSender;
+
+/**
+ * Provides commands for benchmarks.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+@CommandHandler
+public class BenchmarkCommandHandler {
+
+	/**
+	 * Stores a sink for parsed values (prevents dead code elimination).
+	 */
+	public volatile int sink = 0;
+
+	@Command (aliases = {"bench", "b"}, flags = "nm:fv", description = "Benchmark command")
+	public boolean bench (CommandSender sender, String label, CommandContext context) {
+		this.sink += context.getArgumentList ().size ();
+		return true;
+	}
+
+	@Command (aliases = {"benchflags", "bf"}, flags = "abcdefg", description = "Benchmark command (flags)")
+	public boolean benchFlags (CommandSender sender, String label, CommandContext context) {
+		this.sink += (context.hasFlag ('a') ? 1 : 0);
+		return true;
+	}
+
+	@Command (aliases = {"benchvalues", "bv"}, flags = "xyz:", description = "Benchmark command (value flags)")
+	public boolean benchValues (CommandSender sender, String label, CommandContext context) {
+		String value = context.getFlagValue ('x');
+		this.sink += (value != null ? value.length () : 0);
+		return true;
+	}
+
+	@Command (aliases = {"benchnoop", "bn"}, description = "Benchmark command (no operation)")
+	public boolean benchNoop (CommandSender sender, String label, CommandContext context) {
+		return true;
+	}
+}
@@ -0,0 +1,60 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.benchmark;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.results.format.ResultFormatType;
+
+/**
+ * Runs all benchmarks and writes their results as JSON (unless specified otherwise on the command line).
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class BenchmarkRunner {
+
+	/**
+	 * Stores the default result file.
+	 */
+	public static final String DEFAULT_RESULT_FILE = "target/benchmark-results.json";
+
+	/**
+	 * Runs the benchmarks.
+	 * @param arguments
+	 * @throws CommandLineOptionException
+	 * @throws RunnerException
+	 */
+	public static void main (String[] arguments) throws CommandLineOptionException, RunnerException {
+		// parse command line
+		CommandLineOptions commandLineOptions = new CommandLineOptions (arguments);
+		ChainedOptionsBuilder builder = new OptionsBuilder ().parent (commandLineOptions);
+
+		// default to JSON results
+		if (!commandLineOptions.getResultFormat ().hasValue ()) builder.resultFormat (ResultFormatType.JSON);
+		if (!commandLineOptions.getResult ().hasValue ()) builder.result (DEFAULT_RESULT_FILE);
+
+		// run
+		new Runner (builder.build ()).run ();
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.benchmark;
+
+import com.evilco.bukkit.util.plugin.command.CommandContext;
+import com.evilco.bukkit.util.plugin.command.CommandFlags;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks flag and argument parsing.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+@State (Scope.Thread)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class CommandContextBenchmark {
+
+	/**
+	 * Stores the flag specification.
+	 */
+	@Param ({"nm:fv"})
+	public String flags;
+
+	/**
+	 * Stores the benchmarked argument lists.
+	 */
+	protected String[] plainArguments;
+	protected String[] flagArguments;
+	protected String[] quotedArguments;
+
+	/**
+	 * Stores a reused context.
+	 */
+	protected CommandContext context;
+
+	/**
+	 * Stores the compiled specification.
+	 */
+	protected CommandFlags specification;
+
+	@Setup
+	public void setup () {
+		this.plainArguments = new String[] {"first", "second", "third", "fourth"};
+		this.flagArguments = new String[] {"-fvn", "value", "first", "second"};
+		this.quotedArguments = new String[] {"-fnm", "\"a", "quoted", "value\"", "'another value'", "first", "second"};
+
+		this.specification = new CommandFlags (this.flags);
+		this.context = new CommandContext (this.specification);
+	}
+
+	@Benchmark
+	public void parsePlain (Blackhole blackhole) {
+		this.context.parse (this.plainArguments);
+		blackhole.consume (this.context.getArgumentList ().size ());
+	}
+
+	@Benchmark
+	public void parseFlags (Blackhole blackhole) {
+		this.context.parse (this.flagArguments);
+		blackhole.consume (this.context.hasFlag ('f'));
+		blackhole.consume (this.context.getFlagValue ('n'));
+	}
+
+	@Benchmark
+	public void parseQuotedValueFlags (Blackhole blackhole) {
+		this.context.parse (this.quotedArguments);
+		blackhole.consume (this.context.getFlagValue ('n'));
+		blackhole.consume (this.context.getFlagValue ('m'));
+	}
+
+	@Benchmark
+	public void parseQuotedValueFlagsFreshContext (Blackhole blackhole) {
+		CommandContext context = new CommandContext (this.specification);
+		context.parse (this.quotedArguments);
+		blackhole.consume (context.getFlagValue ('n'));
+	}
+
+	@Benchmark
+	public void compileSpecification (Blackhole blackhole) {
+		blackhole.consume (new CommandFlags (this.flags));
+	}
+}
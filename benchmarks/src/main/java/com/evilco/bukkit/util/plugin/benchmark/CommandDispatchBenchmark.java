@@ -0,0 +1,112 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.benchmark;
+
+import com.evilco.bukkit.util.plugin.command.CommandContext;
+import com.evilco.bukkit.util.plugin.command.CommandManager;
+import com.evilco.bukkit.util.plugin.command.DynamicCommand;
+import com.evilco.bukkit.util.plugin.command.MethodHandleCommandInvoker;
+import org.bukkit.Server;
+import org.bukkit.command.CommandMap;
+import org.bukkit.command.CommandSender;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks command dispatching through a command map with many registered commands.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+@State (Scope.Thread)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class CommandDispatchBenchmark {
+
+	/**
+	 * Stores the amount of registered commands (each command registers three aliases).
+	 */
+	@Param ({"10", "500"})
+	public int commandCount;
+
+	/**
+	 * Stores the command map.
+	 */
+	protected CommandMap commandMap;
+
+	/**
+	 * Stores the command line of the benchmarked command.
+	 */
+	protected String commandLine;
+
+	/**
+	 * Stores the command line of a quoted value flag command.
+	 */
+	protected String quotedCommandLine;
+
+	/**
+	 * Stores the command line of an unknown command.
+	 */
+	protected String unknownCommandLine;
+
+	/**
+	 * Stores the command sender.
+	 */
+	protected CommandSender sender;
+
+	@Setup
+	public void setup () throws Exception {
+		Server server = StubServer.createServer ();
+		CommandManager manager = new CommandManager (StubServer.createPlugin (server, null));
+		BenchmarkCommandHandler handler = new BenchmarkCommandHandler ();
+
+		this.sender = StubServer.createSender ();
+		this.commandMap = manager.getCommandMap ();
+
+		// register commands
+		for (int i = 0; i < this.commandCount; i++) {
+			DynamicCommand command = new DynamicCommand (new String[] {"command" + i, "cmd" + i, "c" + i}, "nm:fv", "Benchmark command", "", manager, new MethodHandleCommandInvoker (handler, BenchmarkCommandHandler.class.getMethod ("bench", CommandSender.class, String.class, CommandContext.class)));
+			this.commandMap.register ("benchmark", command);
+		}
+
+		// build command lines
+		this.commandLine = "cmd" + (this.commandCount / 2) + " first second third";
+		this.quotedCommandLine = "c" + (this.commandCount / 2) + " -fnm \"a quoted value\" 'another value' first second";
+		this.unknownCommandLine = "unknown" + this.commandCount + " first second third";
+	}
+
+	@Benchmark
+	public boolean dispatch () {
+		return this.commandMap.dispatch (this.sender, this.commandLine);
+	}
+
+	@Benchmark
+	public boolean dispatchQuotedValueFlags () {
+		return this.commandMap.dispatch (this.sender, this.quotedCommandLine);
+	}
+
+	@Benchmark
+	public boolean dispatchUnknown () {
+		return this.commandMap.dispatch (this.sender, this.unknownCommandLine);
+	}
+}
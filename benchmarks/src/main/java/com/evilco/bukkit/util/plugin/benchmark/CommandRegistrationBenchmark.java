@@ -0,0 +1,205 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.benchmark;
+
+import com.evilco.bukkit.util.plugin.command.CommandHandlerScanner;
+import com.evilco.bukkit.util.plugin.command.CommandManager;
+import org.bukkit.Server;
+import org.bukkit.command.CommandMap;
+import org.bukkit.plugin.Plugin;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Benchmarks command handler discovery and registration.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+@State (Scope.Thread)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class CommandRegistrationBenchmark {
+
+	/**
+	 * Stores the amount of classes within the synthetic plugin archive.
+	 */
+	@Param ({"100", "5000"})
+	public int classCount;
+
+	/**
+	 * Stores the synthetic plugin archive.
+	 */
+	protected File archive;
+
+	/**
+	 * Stores the data folder (which contains the scanner cache).
+	 */
+	protected File dataFolder;
+
+	/**
+	 * Stores a scanner which bypasses its cache.
+	 */
+	protected CommandHandlerScanner scanner;
+
+	/**
+	 * Stores a scanner which uses its cache.
+	 */
+	protected CommandHandlerScanner cachedScanner;
+
+	@Setup
+	public void setup () throws IOException {
+		Server server = StubServer.createServer ();
+
+		// create synthetic plugin archive (every tenth class is a command handler)
+		byte[] handlerClass = readClass (BenchmarkCommandHandler.class);
+		byte[] otherClass = readClass (CommandRegistrationBenchmark.class);
+
+		this.archive = File.createTempFile ("synthetic", ".jar");
+		JarOutputStream outputStream = new JarOutputStream (new FileOutputStream (this.archive));
+
+		try {
+			for (int i = 0; i < this.classCount; i++) {
+				outputStream.putNextEntry (new ZipEntry ("synthetic/handler/package" + (i % 10) + "/Handler" + i + ".class"));
+				outputStream.write ((i % 10) == 0 ? handlerClass : otherClass);
+				outputStream.closeEntry ();
+			}
+		} finally {
+			outputStream.close ();
+		}
+
+		// create scanners
+		this.dataFolder = File.createTempFile ("synthetic", "");
+		this.dataFolder.delete ();
+		this.dataFolder.mkdirs ();
+
+		final File archive = this.archive;
+		Plugin plugin = StubServer.createPlugin (server, this.dataFolder);
+
+		this.scanner = new CommandHandlerScanner (plugin, StubServer.LOGGER) {
+
+			@Override
+			protected File getArchive () {
+				return archive;
+			}
+
+			@Override
+			protected List<String> readCache (File cacheFile, String key) {
+				return null;
+			}
+
+			@Override
+			protected void writeCache (File cacheFile, String key, List<String> classNames) { }
+		};
+
+		this.cachedScanner = new CommandHandlerScanner (plugin, StubServer.LOGGER) {
+
+			@Override
+			protected File getArchive () {
+				return archive;
+			}
+		};
+	}
+
+	/**
+	 * Reads the class file of a type.
+	 * @param type
+	 * @return
+	 * @throws IOException
+	 */
+	protected static byte[] readClass (Class<?> type) throws IOException {
+		InputStream inputStream = type.getResourceAsStream (type.getSimpleName () + ".class");
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream ();
+
+		try {
+			byte[] buffer = new byte[4096];
+			int length;
+
+			while ((length = inputStream.read (buffer)) != -1) outputStream.write (buffer, 0, length);
+		} finally {
+			inputStream.close ();
+		}
+
+		return outputStream.toByteArray ();
+	}
+
+	@TearDown
+	public void tearDown () throws IOException {
+		this.archive.delete ();
+
+		new File (this.dataFolder, CommandHandlerScanner.CACHE_FILE_NAME).delete ();
+		this.dataFolder.delete ();
+	}
+
+	@Benchmark
+	public List<String> scanArchive () {
+		return this.scanner.scan ("synthetic.handler");
+	}
+
+	@Benchmark
+	public List<String> scanArchiveCached () {
+		return this.cachedScanner.scan ("synthetic.handler");
+	}
+
+	@Benchmark
+	public void registerCommandHandler (RegistrationState state) throws Exception {
+		state.manager.registerCommandHandler (BenchmarkCommandHandler.class);
+	}
+
+	/**
+	 * Provides a command manager without registered handlers to each registration.
+	 */
+	@State (Scope.Thread)
+	public static class RegistrationState {
+
+		/**
+		 * Stores the command manager.
+		 */
+		protected CommandManager manager;
+
+		/**
+		 * Stores the command map.
+		 */
+		protected CommandMap commandMap;
+
+		@Setup
+		public void setup () {
+			this.manager = new CommandManager (StubServer.createPlugin (StubServer.createServer (), null));
+			this.commandMap = this.manager.getCommandMap ();
+		}
+
+		@Setup (Level.Invocation)
+		public void unregisterCommands () {
+			this.manager.unregisterCommandHandler (BenchmarkCommandHandler.class);
+			this.commandMap.clearCommands ();
+		}
+	}
+}
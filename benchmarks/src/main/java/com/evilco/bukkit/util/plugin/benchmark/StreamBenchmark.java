@@ -0,0 +1,190 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.benchmark;
+
+import com.evilco.bukkit.util.plugin.SimpleJavaPlugin;
+import com.evilco.bukkit.util.plugin.io.StreamUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarOutputStream;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+
+/**
+ * Benchmarks stream copying and resource extraction.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+@State (Scope.Thread)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class StreamBenchmark {
+
+	/**
+	 * Stores the name of the archived resource.
+	 */
+	public static final String RESOURCE_NAME = "resources/data.bin";
+
+	/**
+	 * Stores the data size (in bytes).
+	 */
+	@Param ({"8192", "1048576", "16777216"})
+	public int size;
+
+	/**
+	 * Stores the source data.
+	 */
+	protected byte[] data;
+
+	/**
+	 * Stores the plugin archive.
+	 */
+	protected File archive;
+
+	/**
+	 * Stores the extraction target.
+	 */
+	protected File target;
+
+	/**
+	 * Stores the benchmark plugin.
+	 */
+	protected SimpleJavaPlugin plugin;
+
+	/**
+	 * Discards all written data.
+	 */
+	protected static final OutputStream NULL_OUTPUT_STREAM = new OutputStream () {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void write (int b) throws IOException { }
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void write (byte[] b, int off, int len) throws IOException { }
+	};
+
+	@Setup
+	public void setup () throws IOException {
+		// create data
+		this.data = new byte[this.size];
+		new Random (42).nextBytes (this.data);
+
+		// create plugin archive
+		this.archive = File.createTempFile ("plugin", ".jar");
+		this.target = File.createTempFile ("extracted", ".bin");
+
+		JarOutputStream outputStream = new JarOutputStream (new FileOutputStream (this.archive));
+
+		try {
+			outputStream.putNextEntry (new ZipEntry (RESOURCE_NAME));
+			outputStream.write (this.data);
+			outputStream.closeEntry ();
+		} finally {
+			outputStream.close ();
+		}
+
+		// create plugin
+		this.plugin = new BenchmarkPlugin (this.archive);
+	}
+
+	@TearDown
+	public void tearDown () {
+		this.archive.delete ();
+		this.target.delete ();
+	}
+
+	@Setup (Level.Invocation)
+	public void deleteTarget () {
+		this.target.delete ();
+	}
+
+	@Benchmark
+	public void copy () throws IOException {
+		StreamUtil.copy (new ByteArrayInputStream (this.data), NULL_OUTPUT_STREAM);
+	}
+
+	@Benchmark
+	public void copyFile () throws IOException {
+		FileInputStream inputStream = new FileInputStream (this.archive);
+
+		try {
+			FileOutputStream outputStream = new FileOutputStream (this.target);
+
+			try {
+				StreamUtil.copy (inputStream, outputStream);
+			} finally {
+				outputStream.close ();
+			}
+		} finally {
+			inputStream.close ();
+		}
+	}
+
+	@Benchmark
+	public void extractFile () {
+		this.plugin.extractFile (RESOURCE_NAME, this.target);
+	}
+
+	/**
+	 * Provides a plugin which is not loaded by the server.
+	 */
+	public static class BenchmarkPlugin extends SimpleJavaPlugin {
+
+		/**
+		 * Stores the plugin archive.
+		 */
+		protected final File archive;
+
+		/**
+		 * @param archive
+		 */
+		public BenchmarkPlugin (File archive) {
+			this.archive = archive;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected File getFile () {
+			return this.archive;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Logger getLogger () {
+			return StubServer.LOGGER;
+		}
+	}
+}
@@ -0,0 +1,171 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.benchmark;
+
+import org.bukkit.Server;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginManager;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Provides stub implementations of the Bukkit API which allow running benchmarks without a server.
+ * All stubs return default values for methods which are not explicitly handled.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class StubServer {
+
+	/**
+	 * Stores the stub logger.
+	 */
+	public static final Logger LOGGER = Logger.getLogger ("Benchmark");
+
+	static {
+		LOGGER.setLevel (Level.WARNING);
+	}
+
+	/**
+	 * Creates a stub plugin.
+	 * @param server
+	 * @param dataFolder
+	 * @return
+	 */
+	public static Plugin createPlugin (final Server server, final File dataFolder) {
+		final PluginDescriptionFile description = new PluginDescriptionFile ("Benchmark", "1.0", StubServer.class.getName ());
+
+		return createStub (Plugin.class, new InvocationHandler () {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public Object invoke (Object proxy, Method method, Object[] arguments) throws Throwable {
+				if (method.getName ().equals ("getServer")) return server;
+				if (method.getName ().equals ("getLogger")) return LOGGER;
+				if (method.getName ().equals ("getName")) return description.getName ();
+				if (method.getName ().equals ("getDescription")) return description;
+				if (method.getName ().equals ("getDataFolder")) return dataFolder;
+				if (method.getName ().equals ("isEnabled")) return true;
+				return defaultValue (proxy, method, arguments);
+			}
+		});
+	}
+
+	/**
+	 * Creates a stub command sender which owns all permissions.
+	 * @return
+	 */
+	public static CommandSender createSender () {
+		return createStub (Player.class, new InvocationHandler () {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public Object invoke (Object proxy, Method method, Object[] arguments) throws Throwable {
+				if (method.getName ().equals ("getName")) return "Benchmark";
+				if (method.getName ().equals ("hasPermission")) return true;
+				if (method.getName ().equals ("isOp")) return true;
+				if (method.getName ().equals ("isOnline")) return true;
+				return defaultValue (proxy, method, arguments);
+			}
+		});
+	}
+
+	/**
+	 * Creates a stub server.
+	 * @return
+	 */
+	public static Server createServer () {
+		final PluginManager pluginManager = createStub (PluginManager.class, new InvocationHandler () {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public Object invoke (Object proxy, Method method, Object[] arguments) throws Throwable {
+				return defaultValue (proxy, method, arguments);
+			}
+		});
+
+		return createStub (Server.class, new InvocationHandler () {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public Object invoke (Object proxy, Method method, Object[] arguments) throws Throwable {
+				if (method.getName ().equals ("getPluginManager")) return pluginManager;
+				if (method.getName ().equals ("getLogger")) return LOGGER;
+				if (method.getName ().equals ("getOnlinePlayers")) return new Player[0];
+				if (method.getName ().equals ("isPrimaryThread")) return true;
+				return defaultValue (proxy, method, arguments);
+			}
+		});
+	}
+
+	/**
+	 * Creates a proxy stub.
+	 * @param type
+	 * @param handler
+	 * @param <T>
+	 * @return
+	 */
+	protected static <T> T createStub (Class<T> type, InvocationHandler handler) {
+		return type.cast (Proxy.newProxyInstance (StubServer.class.getClassLoader (), new Class<?>[] { type }, handler));
+	}
+
+	/**
+	 * Returns the default value for a stub method.
+	 * @param proxy
+	 * @param method
+	 * @param arguments
+	 * @return
+	 */
+	protected static Object defaultValue (Object proxy, Method method, Object[] arguments) {
+		// object methods
+		if (method.getName ().equals ("hashCode") && method.getParameterTypes ().length == 0) return System.identityHashCode (proxy);
+		if (method.getName ().equals ("equals") && method.getParameterTypes ().length == 1) return (proxy == arguments[0]);
+		if (method.getName ().equals ("toString") && method.getParameterTypes ().length == 0) return "Stub" + proxy.getClass ().getInterfaces ()[0].getSimpleName ();
+
+		// primitives
+		Class<?> type = method.getReturnType ();
+
+		if (type == boolean.class) return false;
+		if (type == char.class) return '\0';
+		if (type == byte.class) return (byte) 0;
+		if (type == short.class) return (short) 0;
+		if (type == int.class) return 0;
+		if (type == long.class) return 0L;
+		if (type == float.class) return 0.0f;
+		if (type == double.class) return 0.0d;
+
+		return null;
+	}
+}
@@ -0,0 +1,382 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Generates a command handler index at compile time.
+ * The generated index allows the command manager to skip classpath scanning entirely.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+@SupportedAnnotationTypes ({CommandHandlerProcessor.COMMAND_HANDLER_ANNOTATION, CommandHandlerProcessor.COMMAND_ANNOTATION})
+@SupportedOptions ({CommandHandlerProcessor.OPTION_INDEX_CLASS})
+public class CommandHandlerProcessor extends AbstractProcessor {
+
+	/**
+	 * Stores the command annotation name.
+	 */
+	public static final String COMMAND_ANNOTATION = "com.evilco.bukkit.util.plugin.command.annotation.Command";
+
+	/**
+	 * Stores the command context type name.
+	 */
+	public static final String COMMAND_CONTEXT = "com.evilco.bukkit.util.plugin.command.CommandContext";
+
+	/**
+	 * Stores the command handler annotation name.
+	 */
+	public static final String COMMAND_HANDLER_ANNOTATION = "com.evilco.bukkit.util.plugin.command.annotation.CommandHandler";
+
+	/**
+	 * Stores the command handler index interface name.
+	 */
+	public static final String COMMAND_HANDLER_INDEX = "com.evilco.bukkit.util.plugin.command.CommandHandlerIndex";
+
+	/**
+	 * Stores the command sender type name.
+	 */
+	public static final String COMMAND_SENDER = "org.bukkit.command.CommandSender";
+
+	/**
+	 * Stores the simple name of generated indexes.
+	 */
+	public static final String DEFAULT_INDEX_CLASS = "GeneratedCommandHandlerIndex";
+
+	/**
+	 * Stores the name of the index resource (see CommandHandlerIndex.RESOURCE_NAME).
+	 */
+	public static final String INDEX_RESOURCE = "META-INF/com.evilco.bukkit.util.plugin/command-handlers";
+
+	/**
+	 * Stores the option which overrides the generated index class name.
+	 */
+	public static final String OPTION_INDEX_CLASS = "commandHandlerIndex";
+
+	/**
+	 * Stores all discovered handler types.
+	 */
+	protected Set<TypeElement> handlerTypes = new LinkedHashSet<TypeElement> ();
+
+	/**
+	 * Indicates whether the index has already been written.
+	 */
+	protected boolean indexWritten = false;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SourceVersion getSupportedSourceVersion () {
+		return SourceVersion.latestSupported ();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean process (Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		// get annotation types
+		TypeElement handlerAnnotation = this.processingEnv.getElementUtils ().getTypeElement (COMMAND_HANDLER_ANNOTATION);
+		TypeElement commandAnnotation = this.processingEnv.getElementUtils ().getTypeElement (COMMAND_ANNOTATION);
+
+		// library is not on the classpath
+		if (handlerAnnotation == null || commandAnnotation == null) return false;
+
+		// collect handlers
+		List<TypeElement> roundHandlers = new ArrayList<TypeElement> ();
+
+		for (TypeElement type : ElementFilter.typesIn (roundEnv.getElementsAnnotatedWith (handlerAnnotation))) {
+			if (this.verifyHandler (type)) roundHandlers.add (type);
+		}
+
+		// verify command methods
+		for (ExecutableElement method : ElementFilter.methodsIn (roundEnv.getElementsAnnotatedWith (commandAnnotation))) {
+			this.verifyCommand (method, handlerAnnotation);
+		}
+
+		// handlers which appear after the index has been written cannot be indexed
+		if (this.indexWritten) {
+			for (TypeElement type : roundHandlers) {
+				this.processingEnv.getMessager ().printMessage (Diagnostic.Kind.ERROR, "Command handler " + type.getQualifiedName () + " was generated after the command handler index has been written.", type);
+			}
+
+			return false;
+		}
+
+		// write index as soon as handlers are known (handlers of previous incremental builds are kept)
+		this.handlerTypes.addAll (roundHandlers);
+
+		if (!this.handlerTypes.isEmpty ()) {
+			this.loadPreviousHandlers (handlerAnnotation);
+			this.writeIndex ();
+		}
+
+		return false;
+	}
+
+	/**
+	 * Adds all handlers listed in the previously generated index resource which still exist.
+	 * Incremental builds only pass recompiled types to the processor, so handlers which were not recompiled would
+	 * otherwise be dropped from the index.
+	 * @param handlerAnnotation
+	 */
+	protected void loadPreviousHandlers (TypeElement handlerAnnotation) {
+		BufferedReader reader = null;
+
+		try {
+			FileObject resource = this.processingEnv.getFiler ().getResource (StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE);
+			reader = new BufferedReader (resource.openReader (true));
+
+			// skip index class name
+			String line = reader.readLine ();
+
+			while ((line = reader.readLine ()) != null) {
+				// strip comment marker
+				line = line.trim ();
+				if (!line.startsWith ("#")) continue;
+
+				line = line.substring (1).trim ();
+				if (line.isEmpty ()) continue;
+
+				// verify handler (removed or changed handlers are dropped)
+				TypeElement type = this.processingEnv.getElementUtils ().getTypeElement (line);
+				if (type == null || this.handlerTypes.contains (type)) continue;
+
+				for (AnnotationMirror annotation : type.getAnnotationMirrors ()) {
+					if (annotation.getAnnotationType ().asElement ().equals (handlerAnnotation)) {
+						this.handlerTypes.add (type);
+						break;
+					}
+				}
+			}
+		} catch (Exception ex) { // no previous index
+		} finally {
+			try {
+				if (reader != null) reader.close ();
+			} catch (IOException ex) { } // ignore
+		}
+	}
+
+	/**
+	 * Verifies a handler type.
+	 * @param type
+	 * @return
+	 */
+	protected boolean verifyHandler (TypeElement type) {
+		// verify kind
+		if (type.getKind () != ElementKind.CLASS) {
+			this.processingEnv.getMessager ().printMessage (Diagnostic.Kind.ERROR, "Command handlers need to be classes.", type);
+			return false;
+		}
+
+		// verify modifiers
+		if (type.getModifiers ().contains (Modifier.ABSTRACT) || !type.getModifiers ().contains (Modifier.PUBLIC)) {
+			this.processingEnv.getMessager ().printMessage (Diagnostic.Kind.ERROR, "Command handlers need to be public and concrete.", type);
+			return false;
+		}
+
+		// verify nesting
+		if (type.getNestingKind () != NestingKind.TOP_LEVEL && !type.getModifiers ().contains (Modifier.STATIC)) {
+			this.processingEnv.getMessager ().printMessage (Diagnostic.Kind.ERROR, "Nested command handlers need to be static.", type);
+			return false;
+		}
+
+		// verify constructor
+		for (ExecutableElement constructor : ElementFilter.constructorsIn (type.getEnclosedElements ())) {
+			if (constructor.getParameters ().isEmpty () && constructor.getModifiers ().contains (Modifier.PUBLIC)) return true;
+		}
+
+		this.processingEnv.getMessager ().printMessage (Diagnostic.Kind.ERROR, "Command handlers need a public constructor without arguments.", type);
+		return false;
+	}
+
+	/**
+	 * Verifies a command method.
+	 * @param method
+	 * @param handlerAnnotation
+	 */
+	protected void verifyCommand (ExecutableElement method, TypeElement handlerAnnotation) {
+		// verify enclosing handler
+		Element enclosing = method.getEnclosingElement ();
+		boolean annotated = false;
+
+		for (AnnotationMirror annotation : enclosing.getAnnotationMirrors ()) {
+			if (annotation.getAnnotationType ().asElement ().equals (handlerAnnotation)) annotated = true;
+		}
+
+		if (!annotated) this.processingEnv.getMessager ().printMessage (Diagnostic.Kind.WARNING, "Command methods are only registered within classes annotated with @CommandHandler.", method);
+
+		// verify visibility
+		if (!method.getModifiers ().contains (Modifier.PUBLIC) || method.getModifiers ().contains (Modifier.STATIC)) {
+			this.processingEnv.getMessager ().printMessage (Diagnostic.Kind.ERROR, "Command methods need to be public instance methods.", method);
+			return;
+		}
+
+		// verify signature
+		List<? extends VariableElement> parameters = method.getParameters ();
+
+		if (parameters.size () < 3 || !this.isAssignable (parameters.get (0).asType (), COMMAND_SENDER) || !this.isAssignable (parameters.get (1).asType (), String.class.getName ()) || !this.isAssignable (parameters.get (2).asType (), COMMAND_CONTEXT)) {
+			this.processingEnv.getMessager ().printMessage (Diagnostic.Kind.ERROR, "Command methods need the method signature: CommandSender, String, CommandContext.", method);
+		}
+	}
+
+	/**
+	 * Checks whether a type is a sub type of the supplied type.
+	 * @param type
+	 * @param superTypeName
+	 * @return
+	 */
+	protected boolean isAssignable (TypeMirror type, String superTypeName) {
+		// get super type
+		TypeElement superType = this.processingEnv.getElementUtils ().getTypeElement (superTypeName);
+
+		// unknown types cannot be verified
+		if (superType == null || type.getKind () == TypeKind.ERROR) return true;
+
+		return this.processingEnv.getTypeUtils ().isSubtype (this.processingEnv.getTypeUtils ().erasure (type), this.processingEnv.getTypeUtils ().erasure (superType.asType ()));
+	}
+
+	/**
+	 * Writes the index class and resource.
+	 */
+	protected void writeIndex () {
+		// get class name
+		String indexClass = this.processingEnv.getOptions ().get (OPTION_INDEX_CLASS);
+		if (indexClass == null || indexClass.isEmpty ()) indexClass = this.getCommonPackage () + DEFAULT_INDEX_CLASS;
+
+		// split name
+		int separator = indexClass.lastIndexOf ('.');
+		String packageName = (separator != -1 ? indexClass.substring (0, separator) : null);
+		String simpleName = indexClass.substring (separator + 1);
+
+		// collect originating elements
+		Element[] originatingElements = this.handlerTypes.toArray (new Element[this.handlerTypes.size ()]);
+
+		Writer writer = null;
+
+		try {
+			// write class
+			JavaFileObject sourceFile = this.processingEnv.getFiler ().createSourceFile (indexClass, originatingElements);
+			writer = sourceFile.openWriter ();
+
+			if (packageName != null) writer.write ("package " + packageName + ";\n\n");
+
+			writer.write ("/**\n");
+			writer.write (" * Generated by " + this.getClass ().getName () + ". Do not edit.\n");
+			writer.write (" */\n");
+			writer.write ("public final class " + simpleName + " implements " + COMMAND_HANDLER_INDEX + " {\n\n");
+			writer.write ("\t/**\n");
+			writer.write ("\t * {@inheritDoc}\n");
+			writer.write ("\t */\n");
+			writer.write ("\t@Override\n");
+			writer.write ("\tpublic Class<?>[] getCommandHandlers () {\n");
+			writer.write ("\t\treturn new Class<?>[] {\n");
+
+			Iterator<TypeElement> iterator = this.handlerTypes.iterator ();
+
+			while (iterator.hasNext ()) {
+				writer.write ("\t\t\t" + iterator.next ().getQualifiedName () + ".class" + (iterator.hasNext () ? "," : "") + "\n");
+			}
+
+			writer.write ("\t\t};\n");
+			writer.write ("\t}\n");
+			writer.write ("}\n");
+			writer.close ();
+
+			// write resource
+			FileObject resource = this.processingEnv.getFiler ().createResource (StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE, originatingElements);
+			writer = resource.openWriter ();
+			writer.write (indexClass + "\n");
+
+			// list handlers for subsequent incremental builds (ignored at runtime)
+			for (TypeElement type : this.handlerTypes) writer.write ("# " + type.getQualifiedName () + "\n");
+			writer.close ();
+		} catch (IOException ex) {
+			this.processingEnv.getMessager ().printMessage (Diagnostic.Kind.ERROR, "Cannot write command handler index: " + ex.getMessage ());
+		} finally {
+			try {
+				if (writer != null) writer.close ();
+			} catch (IOException ex) { } // ignore
+		}
+
+		this.indexWritten = true;
+	}
+
+	/**
+	 * Returns the longest package prefix shared by all handlers (including a trailing dot).
+	 * @return
+	 */
+	protected String getCommonPackage () {
+		String[] common = null;
+		int length = 0;
+
+		for (TypeElement type : this.handlerTypes) {
+			// get package
+			String packageName = this.processingEnv.getElementUtils ().getPackageOf (type).getQualifiedName ().toString ();
+			String[] elements = (packageName.isEmpty () ? new String[0] : packageName.split ("\\."));
+
+			// first handler
+			if (common == null) {
+				common = elements;
+				length = elements.length;
+				continue;
+			}
+
+			// shorten prefix
+			length = Math.min (length, elements.length);
+
+			for (int i = 0; i < length; i++) {
+				if (!common[i].equals (elements[i])) {
+					length = i;
+					break;
+				}
+			}
+		}
+
+		// build prefix
+		StringBuilder buffer = new StringBuilder ();
+
+		for (int i = 0; i < length; i++) {
+			buffer
+				.append (common[i])
+				.append ('.');
+		}
+
+		return buffer.toString ();
+	}
+}
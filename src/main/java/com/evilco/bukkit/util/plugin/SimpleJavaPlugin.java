@@ -20,20 +20,41 @@
 package com.evilco.bukkit.util.plugin;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.util.jar.JarFile;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import com.evilco.bukkit.util.plugin.dependency.DependencyRegistry;
+import com.evilco.bukkit.util.plugin.dependency.PluginDependency;
+import com.evilco.bukkit.util.plugin.dependency.ServiceDependency;
 import com.evilco.bukkit.util.plugin.exception.MissingDependencyException;
-import com.evilco.bukkit.util.plugin.io.StreamUtil;
+import com.evilco.bukkit.util.plugin.scheduler.TickScheduler;
+import com.evilco.bukkit.util.plugin.scheduler.WorkQueue;
+import com.evilco.bukkit.util.plugin.scheduler.WorkUnit;
+import com.evilco.bukkit.util.plugin.startup.StartupPipeline;
+import com.evilco.bukkit.util.plugin.store.PlayerStore;
+import com.evilco.bukkit.util.plugin.store.PlayerStoreListener;
+import com.evilco.bukkit.util.plugin.store.RecordLayout;
 
 /**
  * A simple java plugin extension.
@@ -45,7 +66,27 @@ import com.evilco.bukkit.util.plugin.io.StreamUtil;
 public class SimpleJavaPlugin extends JavaPlugin {
 
 	/**
-	 * Extracts a file from the plugin archive.
+	 * Stores all cached dependency handles.
+	 */
+	protected final DependencyRegistry dependencies = new DependencyRegistry(this);
+	
+	/**
+	 * Stores the listener which tracks player stores (if any).
+	 */
+	protected PlayerStoreListener playerStoreListener = null;
+	
+	/**
+	 * Defines the buffer size used to verify existing files.
+	 */
+	protected static final int CHECKSUM_BUFFER_SIZE = 65536;
+	
+	/**
+	 * Defines the maximum amount of threads used by asynchronous extractions.
+	 */
+	protected static final int DEFAULT_EXTRACTION_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+	
+	/**
+	 * Extracts a file from the plugin archive (existing files are kept).
 	 * @param inputPath
 	 * @param outputPath
 	 */
@@ -56,52 +97,447 @@ public class SimpleJavaPlugin extends JavaPlugin {
 		// log
 		this.getLogger().info("Extracting " + inputPath + " from plugin archive ...");
 		
-		// create streams
-		InputStream in = null;
-		OutputStream out = null;
-		JarFile jar = null;
-		
 		// extract
+		this.extractFiles(Collections.singletonMap(inputPath, outputPath), false);
+	}
+	
+	/**
+	 * Extracts multiple files from the plugin archive (the archive is opened only once).
+	 * Files are written to a temporary file first and moved into place afterwards, thus no partial files are left behind.
+	 * @param files The output file per archive entry.
+	 * @param overwrite Whether existing files are replaced (unless they match the archive entry).
+	 * @return The amount of extracted files.
+	 */
+	public int extractFiles(Map<String, File> files, boolean overwrite) {
+		ZipFile jar = null;
+		
 		try {
-			// get jar file
-			jar = new JarFile(this.getFile());
+			// open jar file
+			jar = new ZipFile(this.getFile());
 			
-			// get zip entry
-			ZipEntry inputFile = jar.getEntry(inputPath);
+			// extract entries
+			return this.extractEntries(jar, this.findEntries(jar, files), overwrite);
+		} catch (IOException ex) {
+			// log error
+			// XXX: This may cause some serious problems in the plugin execution!
+			this.getLogger().log(Level.SEVERE, "Cannot open plugin archive!", ex);
+			return 0;
+		} finally {
+			closeQuietly(jar);
+		}
+	}
+	
+	/**
+	 * Extracts multiple files from the plugin archive in the background.
+	 * Entries are decompressed and written by a small pool of worker threads. Callers need to wait for the returned future
+	 * before accessing any of the files.
+	 * @param files The output file per archive entry.
+	 * @param overwrite Whether existing files are replaced (unless they match the archive entry).
+	 * @return A future which provides the amount of extracted files.
+	 */
+	public Future<Integer> extractFilesAsync(Map<String, File> files, boolean overwrite) {
+		ZipFile jar;
+		
+		try {
+			// open jar file (closed by the workers)
+			jar = new ZipFile(this.getFile());
+		} catch (IOException ex) {
+			// log error
+			this.getLogger().log(Level.SEVERE, "Cannot open plugin archive!", ex);
+			return completedFuture(0);
+		}
+		
+		return this.extractEntriesAsync(jar, this.findEntries(jar, files), overwrite, DEFAULT_EXTRACTION_THREADS);
+	}
+	
+	/**
+	 * Extracts all files within a directory of the plugin archive.
+	 * @param prefix The directory within the archive (e.g. "lang/").
+	 * @param outputDirectory
+	 * @param overwrite Whether existing files are replaced (unless they match the archive entry).
+	 * @return The amount of extracted files.
+	 */
+	public int extractDirectory(String prefix, File outputDirectory, boolean overwrite) {
+		int extracted = 0;
+		ZipFile jar = null;
+		
+		try {
+			// open jar file
+			jar = new ZipFile(this.getFile());
+			
+			// extract entries
+			extracted = this.extractEntries(jar, this.findDirectoryEntries(jar, prefix, outputDirectory), overwrite);
+		} catch (IOException ex) {
+			// log error
+			this.getLogger().log(Level.SEVERE, "Cannot open plugin archive!", ex);
+		} finally {
+			closeQuietly(jar);
+		}
+		
+		// log
+		if (extracted > 0) this.getLogger().info("Extracted " + extracted + " file(s) from " + prefix + " in plugin archive.");
+		
+		return extracted;
+	}
+	
+	/**
+	 * Extracts all files within a directory of the plugin archive in the background.
+	 * Entries are decompressed and written by a small pool of worker threads. Callers need to wait for the returned future
+	 * before accessing any of the files.
+	 * @param prefix The directory within the archive (e.g. "lang/").
+	 * @param outputDirectory
+	 * @param overwrite Whether existing files are replaced (unless they match the archive entry).
+	 * @return A future which provides the amount of extracted files.
+	 */
+	public Future<Integer> extractDirectoryAsync(String prefix, File outputDirectory, boolean overwrite) {
+		ZipFile jar;
+		
+		try {
+			// open jar file (closed by the workers)
+			jar = new ZipFile(this.getFile());
+		} catch (IOException ex) {
+			// log error
+			this.getLogger().log(Level.SEVERE, "Cannot open plugin archive!", ex);
+			return completedFuture(0);
+		}
+		
+		return this.extractEntriesAsync(jar, this.findDirectoryEntries(jar, prefix, outputDirectory), overwrite, DEFAULT_EXTRACTION_THREADS);
+	}
+	
+	/**
+	 * Looks up archive entries by name.
+	 * @param jar
+	 * @param files The output file per archive entry name.
+	 * @return The output file per archive entry (missing entries are logged and skipped).
+	 */
+	protected Map<ZipEntry, File> findEntries(ZipFile jar, Map<String, File> files) {
+		Map<ZipEntry, File> entries = new LinkedHashMap<ZipEntry, File>();
+		
+		for (Map.Entry<String, File> file : files.entrySet()) {
+			ZipEntry entry = jar.getEntry(file.getKey());
 			
 			// verify jar entry
-			if (inputFile == null) throw new FileNotFoundException();
+			if (entry == null || entry.isDirectory()) {
+				this.getLogger().severe("Cannot extract file " + file.getKey() + " from plugin archive: No such file.");
+				continue;
+			}
 			
-			// get input stream
-			in = jar.getInputStream(inputFile);
+			entries.put(entry, file.getValue());
+		}
+		
+		return entries;
+	}
+	
+	/**
+	 * Looks up all archive entries within a directory.
+	 * @param jar
+	 * @param prefix
+	 * @param outputDirectory
+	 * @return The output file per archive entry (entries which would escape the output directory are skipped).
+	 */
+	protected Map<ZipEntry, File> findDirectoryEntries(ZipFile jar, String prefix, File outputDirectory) {
+		Map<ZipEntry, File> files = new LinkedHashMap<ZipEntry, File>();
+		
+		// normalize prefix
+		if (!prefix.isEmpty() && !prefix.endsWith("/")) prefix += "/";
+		
+		Path directory = outputDirectory.toPath().toAbsolutePath().normalize();
+		Enumeration<? extends ZipEntry> entries = jar.entries();
+		
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
 			
-			// get output stream
-			out = new FileOutputStream(outputPath);
+			// skip other entries
+			if (entry.isDirectory() || !entry.getName().startsWith(prefix) || entry.getName().length() == prefix.length()) continue;
+			
+			// verify path (entries may not escape the output directory)
+			Path target = directory.resolve(entry.getName().substring(prefix.length())).normalize();
+			
+			if (!target.startsWith(directory)) {
+				this.getLogger().warning("Skipping file " + entry.getName() + " in plugin archive: Invalid path.");
+				continue;
+			}
+			
+			files.put(entry, target.toFile());
+		}
+		
+		return files;
+	}
+	
+	/**
+	 * Extracts archive entries on the current thread.
+	 * @param jar
+	 * @param entries
+	 * @param overwrite
+	 * @return The amount of extracted files.
+	 */
+	protected int extractEntries(ZipFile jar, Map<ZipEntry, File> entries, boolean overwrite) {
+		int extracted = 0;
+		
+		for (Map.Entry<ZipEntry, File> entry : entries.entrySet()) {
+			if (this.extractEntry(jar, entry.getKey(), entry.getValue(), overwrite)) extracted++;
+		}
+		
+		return extracted;
+	}
+	
+	/**
+	 * Extracts archive entries on a set of worker threads.
+	 * Workers take entries from a shared queue. The last worker closes the archive and completes the returned future.
+	 * Cancelling the future stops all workers after their current entry (the archive is closed nonetheless).
+	 * @param jar The archive (closed once all entries have been extracted).
+	 * @param entries
+	 * @param overwrite
+	 * @param threads The maximum amount of worker threads.
+	 * @return A future which provides the amount of extracted files.
+	 */
+	protected Future<Integer> extractEntriesAsync(final ZipFile jar, Map<ZipEntry, File> entries, final boolean overwrite, int threads) {
+		final Queue<Map.Entry<ZipEntry, File>> queue = new ConcurrentLinkedQueue<Map.Entry<ZipEntry, File>>(entries.entrySet());
+		final AtomicInteger extracted = new AtomicInteger();
+		
+		// completed by the last worker (independent of cancellation)
+		final SettableFuture<Integer> result = new SettableFuture<Integer>();
+		
+		// nothing to do
+		int workers = Math.max(1, Math.min(threads, entries.size()));
+		
+		if (entries.isEmpty()) {
+			closeQuietly(jar);
+			result.complete(0);
+			return result;
+		}
+		
+		// start workers
+		final AtomicInteger remaining = new AtomicInteger(workers);
+		
+		for (int i = 0; i < workers; i++) {
+			Thread thread = new Thread(new Runnable() {
+				
+				/**
+				 * {@inheritDoc}
+				 */
+				@Override
+				public void run() {
+					try {
+						Map.Entry<ZipEntry, File> entry;
+						
+						// stop early if the future has been cancelled
+						while (!result.isCancelled() && (entry = queue.poll()) != null) {
+							if (SimpleJavaPlugin.this.extractEntry(jar, entry.getKey(), entry.getValue(), overwrite)) extracted.incrementAndGet();
+						}
+					} finally {
+						// the archive is always closed (even if the future has been cancelled)
+						if (remaining.decrementAndGet() == 0) {
+							closeQuietly(jar);
+							result.complete(extracted.get());
+						}
+					}
+				}
+			}, this.getName() + " Extraction Thread #" + (i + 1));
+			
+			thread.setDaemon(true);
+			thread.start();
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Returns an already completed future.
+	 * @param value
+	 * @return
+	 */
+	protected static <T> Future<T> completedFuture(T value) {
+		FutureTask<T> future = new FutureTask<T>(new Runnable() {
+			
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public void run() { }
+		}, value);
+		
+		future.run();
+		return future;
+	}
+	
+	/**
+	 * Closes an archive (ignoring all errors).
+	 * @param jar
+	 */
+	protected static void closeQuietly(ZipFile jar) {
+		try {
+			if (jar != null) jar.close();
+		} catch (IOException ex) { } // ignore
+	}
+	
+	/**
+	 * Extracts a single archive entry.
+	 * @param jar
+	 * @param entry
+	 * @param outputPath
+	 * @param overwrite
+	 * @return True if the file has been written.
+	 */
+	protected boolean extractEntry(ZipFile jar, ZipEntry entry, File outputPath, boolean overwrite) {
+		Path target = outputPath.toPath().toAbsolutePath();
+		Path temporary = null;
+		
+		try {
+			// skip existing (or unchanged) files
+			if (Files.exists(target) && (!overwrite || isUnchanged(entry, target))) return false;
+			
+			// create parent directories
+			Files.createDirectories(target.getParent());
+			
+			// copy to temporary file (within the same directory to allow atomic moves)
+			// note: Files.createTempFile() would restrict permissions to the owner which would be kept by the move
+			temporary = File.createTempFile("." + target.getFileName().toString() + ".", ".tmp", target.getParent().toFile()).toPath();
+			InputStream in = jar.getInputStream(entry);
 			
-			// copy file contents
-			if (in != null) StreamUtil.copy(in, out);
-		} catch (IOException ex) {
-			// log error
-			// XXX: This may cause some serious problems in the plugin execution!
-			this.getLogger().log(Level.SEVERE, "Cannot extract file " + inputPath + " from plugin archive!", ex);
-		} finally {
-			// close input stream
 			try {
+				Files.copy(in, temporary, StandardCopyOption.REPLACE_EXISTING);
+			} finally {
 				in.close();
-			} catch (Exception ex) { } // ignore
+			}
 			
-			// close output stream
+			// move into place
 			try {
-				out.close();
-			} catch (Exception ex) { } // ignore
+				Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException ex) {
+				Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+			}
 			
-			// close jar file
+			temporary = null;
+			return true;
+		} catch (IOException ex) {
+			// log error
+			this.getLogger().log(Level.SEVERE, "Cannot extract file " + entry.getName() + " from plugin archive!", ex);
+			return false;
+		} finally {
+			// remove partial file
 			try {
-				jar.close();
-			} catch (Exception ex) { } // ignore
+				if (temporary != null) Files.deleteIfExists(temporary);
+			} catch (IOException ex) { } // ignore
 		}
 	}
 	
+	/**
+	 * Checks whether a file matches an archive entry (by size and checksum).
+	 * @param entry
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	protected static boolean isUnchanged(ZipEntry entry, Path file) throws IOException {
+		// compare size
+		if (entry.getSize() == -1 || entry.getCrc() == -1 || entry.getSize() != Files.size(file)) return false;
+		
+		// compare checksum
+		CRC32 checksum = new CRC32();
+		byte[] buffer = new byte[CHECKSUM_BUFFER_SIZE];
+		InputStream in = Files.newInputStream(file);
+		
+		try {
+			int length;
+			while ((length = in.read(buffer)) != -1) checksum.update(buffer, 0, length);
+		} finally {
+			in.close();
+		}
+		
+		return (checksum.getValue() == entry.getCrc());
+	}
+	
+	/**
+	 * Creates an off-heap store with a fixed-layout record per player.
+	 * Stores are flushed when the plugin is disabled and closed by {@link #onDisable()} (or when the first store is
+	 * created after the plugin has been enabled again).
+	 * @param name The file name within the data folder (if persistent).
+	 * @param layout
+	 * @param persistent Whether the store is memory-mapped from the data folder.
+	 * @param timeToLive The time to live of offline records (0 disables eviction).
+	 * @param unit
+	 * @return
+	 * @throws IOException
+	 */
+	public PlayerStore createPlayerStore(String name, RecordLayout layout, boolean persistent, long timeToLive, TimeUnit unit) throws IOException {
+		if (!this.isEnabled()) throw new IllegalStateException("Player stores can only be created while the plugin is enabled");
+		
+		// close stores of a previous run (if onDisable has been overridden without calling the parent method)
+		synchronized(this) {
+			if (this.playerStoreListener != null && this.playerStoreListener.isDetached()) {
+				this.playerStoreListener.closeStores();
+				this.playerStoreListener = null;
+			}
+		}
+		
+		// create store
+		PlayerStore store;
+		
+		if (persistent) {
+			this.getDataFolder().mkdirs();
+			store = new PlayerStore(layout, PlayerStore.DEFAULT_CAPACITY, unit.toMillis(timeToLive), new File(this.getDataFolder(), name + ".store"));
+		} else
+			store = new PlayerStore(layout, PlayerStore.DEFAULT_CAPACITY, unit.toMillis(timeToLive));
+		
+		// track online players
+		synchronized(this) {
+			if (this.playerStoreListener == null) {
+				this.playerStoreListener = new PlayerStoreListener(this);
+				this.getServer().getPluginManager().registerEvents(this.playerStoreListener, this);
+			}
+		}
+		
+		this.playerStoreListener.addStore(store);
+		return store;
+	}
+	
+	/**
+	 * Closes all player stores.
+	 * Stores are flushed before this method is called and stay writable during the shutdown of subclasses (which should
+	 * call super.onDisable() at the end). Stores which are not closed here are closed when the plugin creates its first
+	 * store after being enabled again.
+	 */
+	@Override
+	public void onDisable() {
+		PlayerStoreListener listener;
+		
+		synchronized(this) {
+			listener = this.playerStoreListener;
+			this.playerStoreListener = null;
+		}
+		
+		// listeners are unregistered with their plugin (a new listener is registered when the plugin is enabled again)
+		if (listener != null) listener.closeStores();
+	}
+	
+	/**
+	 * Creates a pipeline which executes startup stages in parallel (synchronous stages are executed on the main thread).
+	 * @return
+	 */
+	protected StartupPipeline createStartupPipeline() {
+		return new StartupPipeline(this);
+	}
+	
+	/**
+	 * Submits a splittable work unit which is executed on the main thread within the per-tick budget.
+	 * The budget is shared with other plugins only if they load the same copy of this library (shaded copies have a budget
+	 * of their own). Pending work is cancelled when this plugin is disabled.
+	 * @param unit
+	 * @return
+	 */
+	public Future<Void> submitWork(WorkUnit unit) {
+		return TickScheduler.getInstance().submit(this, unit);
+	}
+	
+	/**
+	 * Returns the work queue (including backlog and overrun statistics) of this plugin.
+	 * @return
+	 */
+	public WorkQueue getWorkQueue() {
+		return TickScheduler.getInstance().getQueue(this);
+	}
+	
 	/**
 	 * Returns a plugin dependency.
 	 * @param type
@@ -110,14 +546,26 @@ public class SimpleJavaPlugin extends JavaPlugin {
 	 * @throws MissingDependencyException 
 	 */
 	protected <T extends Plugin> T getDependency(Class<T> type, String name) throws MissingDependencyException {
-		// get plugin
-		T plugin = this.getSoftDependency(type, name);
-		
-		// check existance
-		if (plugin == null) throw new MissingDependencyException(name);
-		
-		// return
-		return plugin;
+		return this.dependencies.getPlugin(type, name).require();
+	}
+	
+	/**
+	 * Returns a cached handle to a plugin dependency.
+	 * @param type
+	 * @param name
+	 * @return
+	 */
+	protected <T extends Plugin> PluginDependency<T> getDependencyHandle(Class<T> type, String name) {
+		return this.dependencies.getPlugin(type, name);
+	}
+	
+	/**
+	 * Returns a cached handle to a service provided through the services manager.
+	 * @param type
+	 * @return
+	 */
+	protected <T> ServiceDependency<T> getServiceHandle(Class<T> type) {
+		return this.dependencies.getService(type);
 	}
 	
 	/**
@@ -126,10 +574,44 @@ public class SimpleJavaPlugin extends JavaPlugin {
 	 * @return
 	 */
 	protected <T extends Plugin> T getSoftDependency(Class<T> type, String name) {
-		// get plugin
-		T plugin = type.cast(this.getServer().getPluginManager().getPlugin(name));
+		return this.dependencies.getPlugin(type, name).get();
+	}
+	
+	/**
+	 * Checks whether a plugin dependency is available.
+	 * @param type
+	 * @param name
+	 * @return
+	 */
+	protected boolean hasDependency(Class<? extends Plugin> type, String name) {
+		return this.dependencies.getPlugin(type, name).isAvailable();
+	}
+	
+	/**
+	 * A future which is completed explicitly.
+	 */
+	protected static class SettableFuture<T> extends FutureTask<T> {
 		
-		// return
-		return plugin;
+		/**
+		 * Constructs a new incomplete future.
+		 */
+		public SettableFuture() {
+			super(new Runnable() {
+				
+				/**
+				 * {@inheritDoc}
+				 */
+				@Override
+				public void run() { }
+			}, null);
+		}
+		
+		/**
+		 * Completes the future (ignored if the future has been cancelled or completed already).
+		 * @param value
+		 */
+		public void complete(T value) {
+			this.set(value);
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,335 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandException;
+import org.bukkit.command.CommandSender;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Executes a large amount of command lines on behalf of a single sender.
+ * Lines are resolved once when added (commands of other plugins are passed to the command map). Lines are only resolved
+ * again if commands of the manager have been registered, replaced or removed in the meantime.
+ * Lines may be grouped by command (which changes their order) and executed at once or spread across server ticks with a
+ * time budget per tick. Scheduled batches are cancelled when the parent plugin is disabled.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class CommandBatch {
+
+	/**
+	 * Stores the parent command manager.
+	 */
+	protected final CommandManager manager;
+
+	/**
+	 * Stores the sender.
+	 */
+	protected final CommandSender sender;
+
+	/**
+	 * Stores all resolved lines (in execution order).
+	 */
+	protected final List<Line> lines = new ArrayList<Line> ();
+
+	/**
+	 * Stores the lines per command (if grouped).
+	 */
+	protected Map<Object, List<Line>> groups = null;
+
+	/**
+	 * Stores the position of the next line.
+	 */
+	protected int position = 0;
+
+	/**
+	 * Stores the amount of handled lines.
+	 */
+	protected int executed = 0;
+
+	/**
+	 * Stores the result of a scheduled batch (or null if the batch has not been scheduled).
+	 */
+	protected FutureTask<Integer> result = null;
+
+	/**
+	 * Stores the task of a scheduled batch (or null if the batch has not been scheduled).
+	 */
+	protected BukkitTask task = null;
+
+	/**
+	 * @param manager
+	 * @param sender
+	 * @param grouped Whether lines are grouped by command (lines of one command are executed in order).
+	 */
+	public CommandBatch (CommandManager manager, CommandSender sender, boolean grouped) {
+		this.manager = manager;
+		this.sender = sender;
+		if (grouped) this.groups = new LinkedHashMap<Object, List<Line>> ();
+	}
+
+	/**
+	 * Adds a command line (with or without leading slash).
+	 * @param line
+	 */
+	public void add (String line) {
+		if (line.startsWith ("/")) line = line.substring (1);
+		if (line.trim ().isEmpty ()) return;
+
+		Line resolved = this.resolve (line);
+
+		// group lines
+		if (this.groups == null) {
+			this.lines.add (resolved);
+			return;
+		}
+
+		Object key = (resolved.command != null ? resolved.command : this.manager);
+		List<Line> group = this.groups.get (key);
+		if (group == null) this.groups.put (key, (group = new ArrayList<Line> ()));
+
+		group.add (resolved);
+	}
+
+	/**
+	 * Resolves a command line (without leading slash).
+	 * @param line
+	 * @return
+	 */
+	protected Line resolve (String line) {
+		int generation = this.manager.getRegistrationGeneration ();
+		String[] arguments = line.split (" ");
+		org.bukkit.command.Command command = this.manager.getCommandMap ().getCommand (arguments[0]);
+
+		// dispatch foreign commands through the command map
+		if (!(command instanceof DynamicCommand) || ((DynamicCommand) command).parentManager != this.manager) return new Line (line, null, null, null, null, 0, generation);
+
+		// resolve own commands
+		DynamicCommand root = (DynamicCommand) command;
+		String[] strings = Arrays.copyOfRange (arguments, 1, arguments.length);
+
+		DynamicCommand target = root.resolve (strings, strings.length);
+		int offset = (target.depth - root.depth);
+
+		return new Line (line, target, (offset == 0 ? arguments[0] : strings[offset - 1]), arguments[0], strings, offset, generation);
+	}
+
+	/**
+	 * Adds multiple command lines.
+	 * @param lines
+	 */
+	public void addAll (Iterable<String> lines) {
+		for (String line : lines) this.add (line);
+	}
+
+	/**
+	 * Moves grouped lines into execution order.
+	 */
+	protected void flushGroups () {
+		if (this.groups == null) return;
+
+		for (List<Line> group : this.groups.values ()) this.lines.addAll (group);
+		this.groups.clear ();
+	}
+
+	/**
+	 * Executes all remaining lines on the current thread.
+	 * @return The amount of handled lines (lines which have been rejected by a command, e.g. due to missing permissions,
+	 * a cooldown or invalid arguments, are handled as well, just like {@link org.bukkit.command.CommandMap#dispatch}
+	 * reports them). Lines of unknown commands and lines which failed with an exception are not counted.
+	 */
+	public int execute () {
+		this.flushGroups ();
+		while (this.position < this.lines.size ()) this.executeNext ();
+
+		return this.executed;
+	}
+
+	/**
+	 * Executes all remaining lines on the main thread (spread across ticks).
+	 * At least one line is executed per tick.
+	 * @param budget The time which may be spent per tick.
+	 * @param unit
+	 * @return A future which provides the amount of handled lines as reported by {@link #execute()} (cancelling the future
+	 * stops the batch).
+	 */
+	public synchronized Future<Integer> schedule (long budget, TimeUnit unit) {
+		if (this.result != null) throw new IllegalStateException ("The batch has already been scheduled");
+		this.flushGroups ();
+
+		final long budgetNanos = unit.toNanos (budget);
+		final FutureTask<Integer> result = this.result = new FutureTask<Integer> (new Callable<Integer> () {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public Integer call () {
+				return CommandBatch.this.executed;
+			}
+		});
+
+		// cancel the batch when the plugin is disabled
+		this.manager.registerListener ();
+		this.manager.batches.add (this);
+
+		// execute per tick
+		this.task = this.manager.getPlugin ().getServer ().getScheduler ().runTaskTimer (this.manager.getPlugin (), new Runnable () {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public void run () {
+				long start = System.nanoTime ();
+
+				// execute lines until the budget is exhausted
+				if (!result.isCancelled ()) {
+					do {
+						if (CommandBatch.this.position >= CommandBatch.this.lines.size ()) break;
+						CommandBatch.this.executeNext ();
+					} while ((System.nanoTime () - start) < budgetNanos);
+				}
+
+				// finish batch
+				if (result.isCancelled () || CommandBatch.this.position >= CommandBatch.this.lines.size ()) {
+					result.run ();
+					CommandBatch.this.cancel ();
+				}
+			}
+		}, 0, 1);
+
+		return result;
+	}
+
+	/**
+	 * Stops a scheduled batch (the future is cancelled unless it has completed already).
+	 */
+	public synchronized void cancel () {
+		if (this.result == null) return;
+
+		this.result.cancel (false);
+		if (this.task != null) this.task.cancel ();
+		this.manager.batches.remove (this);
+	}
+
+	/**
+	 * Executes the next line.
+	 */
+	protected void executeNext () {
+		Line line = this.lines.get (this.position);
+
+		// release line (batches may be large)
+		this.lines.set (this.position++, null);
+
+		// resolve again if commands have been changed since the line was added
+		if (line.command != null && line.generation != this.manager.getRegistrationGeneration ()) line = this.resolve (line.line);
+
+		try {
+			boolean success;
+
+			if (line.command != null)
+				success = line.command.executeHandler (this.sender, line.alias, line.label, line.arguments, line.offset);
+			else
+				success = this.manager.getCommandMap ().dispatch (this.sender, line.line);
+
+			if (success) this.executed++;
+		} catch (CommandException ex) {
+			this.sender.sendMessage (ChatColor.RED + "Cannot execute \"" + line.line + "\": " + ex.getMessage ());
+			this.manager.logger.log (Level.WARNING, "Cannot execute batched command \"" + line.line + "\": " + ex.getMessage (), ex);
+		}
+	}
+
+	/**
+	 * Returns the amount of remaining lines.
+	 * @return
+	 */
+	public int getRemaining () {
+		return (this.lines.size () - this.position);
+	}
+
+	/**
+	 * Represents a resolved command line.
+	 */
+	protected static class Line {
+
+		/**
+		 * Stores the raw command line.
+		 */
+		public final String line;
+
+		/**
+		 * Stores the resolved command (or null if the line is dispatched through the command map).
+		 */
+		public final DynamicCommand command;
+
+		/**
+		 * Stores the alias used to address the resolved command.
+		 */
+		public final String alias;
+
+		/**
+		 * Stores the root label.
+		 */
+		public final String label;
+
+		/**
+		 * Stores the arguments (behind the root label).
+		 */
+		public final String[] arguments;
+
+		/**
+		 * Stores the amount of arguments consumed by subcommand labels.
+		 */
+		public final int offset;
+
+		/**
+		 * Stores the registration generation the line has been resolved in.
+		 */
+		public final int generation;
+
+		/**
+		 * @param line
+		 * @param command
+		 * @param alias
+		 * @param label
+		 * @param arguments
+		 * @param offset
+		 * @param generation
+		 */
+		public Line (String line, DynamicCommand command, String alias, String label, String[] arguments, int offset, int generation) {
+			this.line = line;
+			this.command = command;
+			this.alias = alias;
+			this.label = label;
+			this.arguments = arguments;
+			this.offset = offset;
+			this.generation = generation;
+		}
+	}
+}
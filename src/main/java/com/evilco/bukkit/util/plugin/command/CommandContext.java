@@ -33,115 +33,211 @@
  */
 package com.evilco.bukkit.util.plugin.command;
 
-import org.bukkit.command.CommandException;
-
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 public class CommandContext {
 
 	/**
 	 * Stores a list of arguments.
 	 */
-	protected List<String> arguments;
+	protected final List<String> arguments = new ArrayList<String> ();
+
+	/**
+	 * Stores all flag values (indexed by flag character).
+	 */
+	protected final String[] argumentValues;
+
+	/**
+	 * Stores a buffer for quoted literals.
+	 */
+	protected final StringBuilder buffer = new StringBuilder ();
+
+	/**
+	 * Stores the compiled flag specification.
+	 */
+	protected final CommandFlags specification;
 
 	/**
-	 * Stores all argument values.
+	 * Stores the bit set of supplied flags (characters 0 - 63).
 	 */
-	protected Map<Character, String> argumentValues;
+	protected long flagsLow = 0;
 
 	/**
-	 * Stores all flags.
+	 * Stores the bit set of supplied flags (characters 64 - 127).
 	 */
-	protected String flags = null;
+	protected long flagsHigh = 0;
 
 	/**
-	 * Stores a list of flags which can have values.
+	 * Indicates whether this context is currently used by a command invocation.
 	 */
-	protected String validValueFlags;
+	boolean acquired = false;
 
 	/**
-	 * Stores a list of flags.
+	 * Indicates whether the command is executed asynchronously.
 	 */
-	protected String validFlags;
+	boolean asynchronous = false;
 
 	/**
-	 * Stores a list of value flags.
+	 * Stores the parent command manager (if any).
 	 */
-	protected String valueFlags = null;
+	CommandManager manager = null;
 
 	/**
 	 * @param flags
 	 */
 	public CommandContext (String flags) {
-		// split up flags
-		String[] flagTypes = flags.split (":");
-
-		// store types
-		this.validValueFlags = (flagTypes.length > 1 ? flagTypes[0] : "");
-		this.validFlags = (flagTypes.length > 1 ? flagTypes[1] : flagTypes[0]);
-		this.arguments = new ArrayList<String> ();
-		this.argumentValues = new HashMap<Character, String> ();
+		this (new CommandFlags (flags));
+	}
+
+	/**
+	 * @param specification
+	 */
+	public CommandContext (CommandFlags specification) {
+		this.specification = specification;
+		this.argumentValues = (specification.getValueFlags ().isEmpty () ? null : new String[128]);
 	}
 
 	/**
 	 * Parses the supplied argument list.
+	 * Flags are expected in the first argument (e.g. -ab) while values of value flags are read from the following
+	 * arguments in the order of their flags. Values may be quoted literals spanning multiple arguments.
 	 * @param arguments
 	 */
 	public void parse (String[] arguments) {
-		// initialize
-		this.flags = new String ();
-		this.valueFlags = new String ();
+		this.parse (arguments, 0);
+	}
 
-		// convert argument listing
-		List<String> argumentList = new ArrayList<String> (Arrays.asList (arguments));
+	/**
+	 * Parses the supplied argument list starting at the supplied offset (e.g. behind subcommand labels).
+	 * @param arguments
+	 * @param offset
+	 */
+	public void parse (String[] arguments, int offset) {
+		// initialize
+		this.reset ();
 
 		// find flags
-		if (argumentList.get (0).startsWith ("-")) {
-			// get flag list
-			String flags = argumentList.remove (0).substring (1);
+		String flagToken = null;
+		int position = offset;
+
+		if (arguments.length > offset && !this.specification.isEmpty () && arguments[offset].length () > 1 && arguments[offset].charAt (0) == '-') {
+			flagToken = arguments[offset];
+			position = offset + 1;
 
 			// iterate over flags
-			for (int i = 0; i < flags.length (); i++) {
-				if (this.validFlags.contains ("" + flags.charAt (i))) this.flags += flags.charAt (i);
-				if (this.valueFlags.contains ("" + flags.charAt (i))) this.valueFlags += flags.charAt (i);
+			for (int i = 1; i < flagToken.length (); i++) {
+				char flag = flagToken.charAt (i);
+				if (this.specification.isFlag (flag) || this.specification.isValueFlag (flag)) this.setFlag (flag);
 			}
 		}
 
-		// create argument buffer
-		StringBuffer buffer = null;
-		int currentFlag = 0;
+		// find first value flag
+		int flagPosition = this.nextValueFlag (flagToken, 1);
+		char quote = 0;
 
 		// iterate over arguments
-		for (String argument : arguments) {
+		for (int i = position; i < arguments.length; i++) {
+			String argument = arguments[i];
+
+			// process arguments
+			if (flagPosition == -1) {
+				this.arguments.add (argument);
+				continue;
+			}
+
+			char currentFlag = flagToken.charAt (flagPosition);
+
 			// process flags
-			if (currentFlag < this.valueFlags.length ()) {
-				// create new buffer (or handle one word arguments)
-				if (buffer == null) {
-					// check for a new string literal
-					if (argument.startsWith ("\"") || argument.startsWith ("'")) {
-						buffer = new StringBuffer ();
-						buffer.append (argument.substring (1));
+			if (quote == 0) {
+				// check for a new string literal
+				if (argument.length () > 0 && (argument.charAt (0) == '"' || argument.charAt (0) == '\'')) {
+					quote = argument.charAt (0);
+
+					// handle one word literals
+					if (argument.length () > 1 && argument.charAt (argument.length () - 1) == quote) {
+						this.argumentValues[currentFlag] = argument.substring (1, (argument.length () - 1));
+						flagPosition = this.nextValueFlag (flagToken, (flagPosition + 1));
+						quote = 0;
 					} else {
-						this.argumentValues.put (this.valueFlags.charAt (currentFlag), argument);
-						currentFlag++;
+						this.buffer.append (argument, 1, argument.length ());
 					}
 				} else {
-					buffer.append (" " + argument);
+					this.argumentValues[currentFlag] = argument;
+					flagPosition = this.nextValueFlag (flagToken, (flagPosition + 1));
+				}
+			} else {
+				this.buffer.append (' ');
 
-					// end literal
-					if (argument.endsWith ("\"") || argument.endsWith ("'")) {
-						// delete literal
-						buffer.deleteCharAt ((buffer.length () - 1));
+				// end literal
+				if (argument.length () > 0 && argument.charAt (argument.length () - 1) == quote) {
+					this.buffer.append (argument, 0, (argument.length () - 1));
 
-						// add value
-						this.argumentValues.put (this.valueFlags.charAt (currentFlag), buffer.toString ());
-						currentFlag++;
-					}
-				}
-			// process arguments
-			} else
-				this.arguments.add (argument);
+					// add value
+					this.argumentValues[currentFlag] = this.buffer.toString ();
+					this.buffer.setLength (0);
+					flagPosition = this.nextValueFlag (flagToken, (flagPosition + 1));
+					quote = 0;
+				} else
+					this.buffer.append (argument);
+			}
+		}
+
+		// store unterminated literals
+		if (quote != 0) {
+			this.argumentValues[flagToken.charAt (flagPosition)] = this.buffer.toString ();
+			this.buffer.setLength (0);
+		}
+	}
+
+	/**
+	 * Returns the position of the next value flag within the flag token (or -1).
+	 * @param flagToken
+	 * @param position
+	 * @return
+	 */
+	protected int nextValueFlag (String flagToken, int position) {
+		if (flagToken == null || this.argumentValues == null) return -1;
+
+		for (int i = position; i < flagToken.length (); i++) {
+			if (this.specification.isValueFlag (flagToken.charAt (i))) return i;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Marks a flag as present.
+	 * @param flag
+	 */
+	protected void setFlag (char flag) {
+		if (flag < 64)
+			this.flagsLow |= (1L << flag);
+		else
+			this.flagsHigh |= (1L << (flag - 64));
+	}
+
+	/**
+	 * Resets the context (drops all parsed arguments and flags).
+	 */
+	public void reset () {
+		this.arguments.clear ();
+		this.buffer.setLength (0);
+
+		// clear values
+		if (this.argumentValues != null && (this.flagsLow | this.flagsHigh) != 0) {
+			String valueFlags = this.specification.getValueFlags ();
+
+			for (int i = 0; i < valueFlags.length (); i++) {
+				char flag = valueFlags.charAt (i);
+				if (flag < 128) this.argumentValues[flag] = null;
+			}
 		}
+
+		this.flagsLow = 0;
+		this.flagsHigh = 0;
 	}
 
 	/**
@@ -155,19 +251,55 @@ public class CommandContext {
 
 	/**
 	 * Returns the argument list.
+	 * Note: Contexts are reused between invocations. Copy the list if it is needed after the handler returned.
 	 * @return
 	 */
 	public List<String> getArgumentList () {
 		return this.arguments;
 	}
 
+	/**
+	 * Calls a task on the main thread and returns its future result.
+	 * @param task
+	 * @param <T>
+	 * @return
+	 */
+	public <T> Future<T> callSynchronously (Callable<T> task) {
+		return this.manager.callSynchronously (task);
+	}
+
+	/**
+	 * Runs a task on the main thread.
+	 * @param task
+	 */
+	public void runSynchronously (Runnable task) {
+		this.manager.runSynchronously (task);
+	}
+
+	/**
+	 * Checks whether the command is executed outside of the main thread.
+	 * @return
+	 */
+	public boolean isAsynchronous () {
+		return this.asynchronous;
+	}
+
+	/**
+	 * Returns the compiled flag specification.
+	 * @return
+	 */
+	public CommandFlags getSpecification () {
+		return this.specification;
+	}
+
 	/**
 	 * Returns a flag value.
 	 * @param flag
 	 * @return
 	 */
 	public String getFlagValue (char flag) {
-		return this.argumentValues.get (flag);
+		if (this.argumentValues == null || flag >= 128) return null;
+		return this.argumentValues[flag];
 	}
 
 	/**
@@ -176,6 +308,6 @@ public class CommandContext {
 	 * @return
 	 */
 	public boolean hasFlag (char flag) {
-		return (this.flags.contains ("" + flag) || this.valueFlags.contains ("" + flag));
+		return CommandFlags.isSet (this.flagsLow, this.flagsHigh, flag);
 	}
 }
@@ -0,0 +1,162 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command;
+
+/**
+ * Represents a compiled flag specification.
+ * Specifications are written as "valueFlags:flags" (or just "flags") and are compiled into ASCII bit sets once.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class CommandFlags {
+
+	/**
+	 * Stores an empty specification.
+	 */
+	public static final CommandFlags EMPTY = new CommandFlags ("");
+
+	/**
+	 * Stores the plain flag characters.
+	 */
+	protected final String flags;
+
+	/**
+	 * Stores the bit set of plain flags (characters 0 - 63).
+	 */
+	protected final long flagsLow;
+
+	/**
+	 * Stores the bit set of plain flags (characters 64 - 127).
+	 */
+	protected final long flagsHigh;
+
+	/**
+	 * Stores the value flag characters.
+	 */
+	protected final String valueFlags;
+
+	/**
+	 * Stores the bit set of value flags (characters 0 - 63).
+	 */
+	protected final long valueFlagsLow;
+
+	/**
+	 * Stores the bit set of value flags (characters 64 - 127).
+	 */
+	protected final long valueFlagsHigh;
+
+	/**
+	 * Compiles a flag specification.
+	 * @param specification
+	 */
+	public CommandFlags (String specification) {
+		// split up flags
+		int separator = specification.indexOf (':');
+
+		// store types
+		this.valueFlags = (separator != -1 ? specification.substring (0, separator) : "");
+		this.flags = (separator != -1 ? specification.substring (separator + 1) : specification);
+
+		// build bit sets
+		long low = 0, high = 0;
+
+		for (int i = 0; i < this.flags.length (); i++) {
+			char flag = this.flags.charAt (i);
+
+			if (flag < 64)
+				low |= (1L << flag);
+			else if (flag < 128)
+				high |= (1L << (flag - 64));
+		}
+
+		this.flagsLow = low;
+		this.flagsHigh = high;
+
+		low = 0;
+		high = 0;
+
+		for (int i = 0; i < this.valueFlags.length (); i++) {
+			char flag = this.valueFlags.charAt (i);
+
+			if (flag < 64)
+				low |= (1L << flag);
+			else if (flag < 128)
+				high |= (1L << (flag - 64));
+		}
+
+		this.valueFlagsLow = low;
+		this.valueFlagsHigh = high;
+	}
+
+	/**
+	 * Checks whether a bit is set.
+	 * @param low
+	 * @param high
+	 * @param flag
+	 * @return
+	 */
+	protected static boolean isSet (long low, long high, char flag) {
+		if (flag < 64) return ((low & (1L << flag)) != 0);
+		if (flag < 128) return ((high & (1L << (flag - 64))) != 0);
+		return false;
+	}
+
+	/**
+	 * Returns all plain flag characters.
+	 * @return
+	 */
+	public String getFlags () {
+		return this.flags;
+	}
+
+	/**
+	 * Returns all value flag characters.
+	 * @return
+	 */
+	public String getValueFlags () {
+		return this.valueFlags;
+	}
+
+	/**
+	 * Checks whether no flags have been declared.
+	 * @return
+	 */
+	public boolean isEmpty () {
+		return ((this.flagsLow | this.flagsHigh | this.valueFlagsLow | this.valueFlagsHigh) == 0);
+	}
+
+	/**
+	 * Checks whether the supplied character is a plain flag.
+	 * @param flag
+	 * @return
+	 */
+	public boolean isFlag (char flag) {
+		return isSet (this.flagsLow, this.flagsHigh, flag);
+	}
+
+	/**
+	 * Checks whether the supplied character is a value flag.
+	 * @param flag
+	 * @return
+	 */
+	public boolean isValueFlag (char flag) {
+		return isSet (this.valueFlagsLow, this.valueFlagsHigh, flag);
+	}
+}
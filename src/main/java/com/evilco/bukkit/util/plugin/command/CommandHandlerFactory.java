@@ -0,0 +1,95 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command;
+
+/**
+ * Creates the instance of a command handler class once (on first use).
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class CommandHandlerFactory {
+
+	/**
+	 * Stores the handler class.
+	 */
+	protected final Class<?> type;
+
+	/**
+	 * Stores the handler instance (or null if it has not been created yet).
+	 */
+	protected volatile Object instance;
+
+	/**
+	 * Constructs a factory which creates its instance on demand.
+	 * @param type
+	 * @throws CommandRegistrationException
+	 */
+	public CommandHandlerFactory (Class<?> type) throws CommandRegistrationException {
+		this.type = type;
+		this.instance = null;
+
+		// verify constructor (without instantiating the class)
+		try {
+			type.getConstructor ();
+		} catch (NoSuchMethodException ex) {
+			throw new CommandRegistrationException ("The command handler " + type.getCanonicalName () + " does not declare a public default constructor.");
+		}
+	}
+
+	/**
+	 * Constructs a factory for an existing instance.
+	 * @param instance
+	 */
+	public CommandHandlerFactory (Object instance) {
+		this.type = instance.getClass ();
+		this.instance = instance;
+	}
+
+	/**
+	 * Returns the handler instance (creates the instance on first call).
+	 * @return
+	 * @throws ReflectiveOperationException
+	 */
+	public Object get () throws ReflectiveOperationException {
+		Object instance = this.instance;
+		if (instance != null) return instance;
+
+		synchronized (this) {
+			if (this.instance == null) this.instance = this.type.newInstance ();
+			return this.instance;
+		}
+	}
+
+	/**
+	 * Returns the handler class.
+	 * @return
+	 */
+	public Class<?> getType () {
+		return this.type;
+	}
+
+	/**
+	 * Returns the handler instance without creating it.
+	 * @return The instance (or null if it has not been created yet).
+	 */
+	public Object getInstance () {
+		return this.instance;
+	}
+}
@@ -0,0 +1,40 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command;
+
+/**
+ * Represents a compile-time generated list of command handlers.
+ * Implementations are generated by the plugin-processor module and located through {@link #RESOURCE_NAME}.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public interface CommandHandlerIndex {
+
+	/**
+	 * Stores the name of the archive resource which contains the name of the generated index class.
+	 */
+	public static final String RESOURCE_NAME = "META-INF/com.evilco.bukkit.util.plugin/command-handlers";
+
+	/**
+	 * Returns all command handler classes.
+	 * @return
+	 */
+	public Class<?>[] getCommandHandlers ();
+}
@@ -0,0 +1,364 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command;
+
+import org.bukkit.plugin.Plugin;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Finds command handler classes within the plugin archive without loading them.
+ * Class files are checked for a reference to the {@link com.evilco.bukkit.util.plugin.command.annotation.CommandHandler}
+ * descriptor within their constant pool and only matching classes are reported. Results are stored in the plugin data
+ * folder and reused as long as the plugin archive (size, modification time and entry checksums) does not change.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class CommandHandlerScanner {
+
+	/**
+	 * Defines the name of the cache file (within the plugin data folder).
+	 */
+	public static final String CACHE_FILE_NAME = ".command-handlers.cache";
+
+	/**
+	 * Defines the cache format version.
+	 */
+	protected static final String CACHE_VERSION = "# command handler cache v1";
+
+	/**
+	 * Defines the annotation descriptor (as stored in class files).
+	 */
+	protected static final byte[] ANNOTATION_DESCRIPTOR = "Lcom/evilco/bukkit/util/plugin/command/annotation/CommandHandler;".getBytes (Charset.forName ("UTF-8"));
+
+	/**
+	 * Defines the class file magic.
+	 */
+	protected static final int CLASS_MAGIC = 0xCAFEBABE;
+
+	/**
+	 * Stores the parent plugin.
+	 */
+	protected final Plugin plugin;
+
+	/**
+	 * Stores the logger.
+	 */
+	protected final Logger logger;
+
+	/**
+	 * @param plugin
+	 * @param logger
+	 */
+	public CommandHandlerScanner (Plugin plugin, Logger logger) {
+		this.plugin = plugin;
+		this.logger = logger;
+	}
+
+	/**
+	 * Returns the names of all (top level) classes within a package (and its sub packages) which reference the command
+	 * handler annotation.
+	 * @param packageName
+	 * @return The class names (or null if the plugin archive cannot be located).
+	 */
+	public List<String> scan (String packageName) {
+		File archive = this.getArchive ();
+		if (archive == null || !archive.isFile ()) return null;
+
+		ZipFile jar = null;
+
+		try {
+			jar = new ZipFile (archive);
+
+			// build cache key
+			String key = "package=" + packageName + ";size=" + archive.length () + ";modified=" + archive.lastModified () + ";hash=" + Long.toHexString (hash (jar));
+			File cacheFile = new File (this.plugin.getDataFolder (), CACHE_FILE_NAME);
+
+			// cached result
+			List<String> classNames = this.readCache (cacheFile, key);
+			if (classNames != null) return classNames;
+
+			// scan archive
+			classNames = scan (jar, packageName);
+			this.writeCache (cacheFile, key, classNames);
+
+			return classNames;
+		} catch (IOException ex) {
+			this.logger.log (Level.WARNING, "Cannot scan plugin archive for command handlers: " + ex.getMessage (), ex);
+			return null;
+		} finally {
+			try {
+				if (jar != null) jar.close ();
+			} catch (IOException ex) { } // ignore
+		}
+	}
+
+	/**
+	 * Returns the plugin archive.
+	 * @return The archive (or null if it cannot be located).
+	 */
+	protected File getArchive () {
+		try {
+			CodeSource source = this.plugin.getClass ().getProtectionDomain ().getCodeSource ();
+			if (source == null || source.getLocation () == null) return null;
+
+			return new File (source.getLocation ().toURI ());
+		} catch (URISyntaxException ex) {
+			return null;
+		} catch (SecurityException ex) {
+			return null;
+		} catch (IllegalArgumentException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Calculates a hash over all entry names, sizes and checksums (read from the central directory only).
+	 * @param jar
+	 * @return
+	 */
+	protected static long hash (ZipFile jar) {
+		long hash = 1125899906842597L;
+		Enumeration<? extends ZipEntry> entries = jar.entries ();
+
+		while (entries.hasMoreElements ()) {
+			ZipEntry entry = entries.nextElement ();
+
+			hash = ((31 * hash) + entry.getName ().hashCode ());
+			hash = ((31 * hash) + entry.getSize ());
+			hash = ((31 * hash) + entry.getCrc ());
+		}
+
+		return hash;
+	}
+
+	/**
+	 * Scans all class files within a package.
+	 * @param jar
+	 * @param packageName
+	 * @return
+	 * @throws IOException
+	 */
+	protected static List<String> scan (ZipFile jar, String packageName) throws IOException {
+		List<String> classNames = new ArrayList<String> ();
+		String prefix = (packageName.isEmpty () ? "" : packageName.replace ('.', '/') + "/");
+
+		Enumeration<? extends ZipEntry> entries = jar.entries ();
+		byte[] buffer = new byte[8192];
+
+		while (entries.hasMoreElements ()) {
+			ZipEntry entry = entries.nextElement ();
+			String name = entry.getName ();
+
+			// skip resources, nested classes and other packages
+			if (!name.endsWith (".class") || !name.startsWith (prefix) || name.indexOf ('$') != -1) continue;
+
+			// read class file
+			int size = (int) entry.getSize ();
+			if (size >= buffer.length) buffer = new byte[size + 1];
+
+			InputStream inputStream = jar.getInputStream (entry);
+			int length = 0;
+
+			try {
+				int read;
+
+				while ((read = inputStream.read (buffer, length, (buffer.length - length))) != -1) {
+					length += read;
+
+					// entry size is unknown
+					if (length == buffer.length) {
+						byte[] newBuffer = new byte[buffer.length * 2];
+						System.arraycopy (buffer, 0, newBuffer, 0, length);
+						buffer = newBuffer;
+					}
+				}
+			} finally {
+				inputStream.close ();
+			}
+
+			// check constant pool
+			if (referencesAnnotation (buffer, length)) classNames.add (name.substring (0, (name.length () - 6)).replace ('/', '.'));
+		}
+
+		return classNames;
+	}
+
+	/**
+	 * Checks whether the constant pool of a class file contains the command handler descriptor.
+	 * @param data
+	 * @param length
+	 * @return
+	 */
+	protected static boolean referencesAnnotation (byte[] data, int length) {
+		// verify header
+		if (length < 10 || readInt (data, 0) != CLASS_MAGIC) return false;
+
+		int count = readUnsignedShort (data, 8);
+		int offset = 10;
+
+		for (int i = 1; i < count; i++) {
+			if (offset >= length) return false;
+
+			switch (data[offset]) {
+				case 1: // utf8
+					if ((offset + 3) > length) return false;
+
+					int size = readUnsignedShort (data, (offset + 1));
+					if (size == ANNOTATION_DESCRIPTOR.length && (offset + 3 + size) <= length && matches (data, (offset + 3))) return true;
+
+					offset += (3 + size);
+					break;
+				case 7: // class
+				case 8: // string
+				case 16: // method type
+				case 19: // module
+				case 20: // package
+					offset += 3;
+					break;
+				case 15: // method handle
+					offset += 4;
+					break;
+				case 3: // integer
+				case 4: // float
+				case 9: // field reference
+				case 10: // method reference
+				case 11: // interface method reference
+				case 12: // name and type
+				case 17: // dynamic
+				case 18: // invoke dynamic
+					offset += 5;
+					break;
+				case 5: // long
+				case 6: // double
+					offset += 9;
+					i++;
+					break;
+				default: // unknown constant (let the class loader decide)
+					return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Compares a region with the annotation descriptor.
+	 * @param data
+	 * @param offset
+	 * @return
+	 */
+	protected static boolean matches (byte[] data, int offset) {
+		for (int i = 0; i < ANNOTATION_DESCRIPTOR.length; i++) {
+			if (data[offset + i] != ANNOTATION_DESCRIPTOR[i]) return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Reads a big endian unsigned short.
+	 * @param data
+	 * @param offset
+	 * @return
+	 */
+	protected static int readUnsignedShort (byte[] data, int offset) {
+		return (((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF));
+	}
+
+	/**
+	 * Reads a big endian integer.
+	 * @param data
+	 * @param offset
+	 * @return
+	 */
+	protected static int readInt (byte[] data, int offset) {
+		return ((readUnsignedShort (data, offset) << 16) | readUnsignedShort (data, (offset + 2)));
+	}
+
+	/**
+	 * Reads cached class names.
+	 * @param cacheFile
+	 * @param key
+	 * @return The class names (or null if the cache is missing or outdated).
+	 */
+	protected List<String> readCache (File cacheFile, String key) {
+		if (!cacheFile.isFile ()) return null;
+
+		try {
+			List<String> lines = Files.readAllLines (cacheFile.toPath (), Charset.forName ("UTF-8"));
+
+			// verify header
+			if (lines.size () < 2 || !lines.get (0).equals (CACHE_VERSION) || !lines.get (1).equals (key)) return null;
+
+			return new ArrayList<String> (lines.subList (2, lines.size ()));
+		} catch (IOException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes cached class names (failures are logged and ignored).
+	 * @param cacheFile
+	 * @param key
+	 * @param classNames
+	 */
+	protected void writeCache (File cacheFile, String key, List<String> classNames) {
+		List<String> lines = new ArrayList<String> (classNames.size () + 2);
+		lines.add (CACHE_VERSION);
+		lines.add (key);
+		lines.addAll (classNames);
+
+		try {
+			File directory = cacheFile.getAbsoluteFile ().getParentFile ();
+			Files.createDirectories (directory.toPath ());
+
+			// write atomically
+			File temporary = File.createTempFile (CACHE_FILE_NAME, ".tmp", directory);
+
+			try {
+				Files.write (temporary.toPath (), lines, Charset.forName ("UTF-8"));
+
+				try {
+					Files.move (temporary.toPath (), cacheFile.toPath (), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				} catch (AtomicMoveNotSupportedException ex) {
+					Files.move (temporary.toPath (), cacheFile.toPath (), StandardCopyOption.REPLACE_EXISTING);
+				}
+			} finally {
+				Files.deleteIfExists (temporary.toPath ());
+			}
+		} catch (IOException ex) {
+			this.logger.log (Level.FINE, "Cannot write command handler cache: " + ex.getMessage (), ex);
+		}
+	}
+}
@@ -21,6 +21,12 @@ package com.evilco.bukkit.util.plugin.command;
 
 import com.evilco.bukkit.util.plugin.command.annotation.Command;
 import com.evilco.bukkit.util.plugin.command.annotation.CommandHandler;
+import com.evilco.bukkit.util.plugin.command.argument.ArgumentConverter;
+import com.evilco.bukkit.util.plugin.command.argument.ConverterRegistry;
+import com.evilco.bukkit.util.plugin.command.completion.ArgumentCompleter;
+import com.evilco.bukkit.util.plugin.command.completion.CompleterRegistry;
+import com.evilco.bukkit.util.plugin.command.completion.CompletionCache;
+import com.evilco.bukkit.util.plugin.command.metrics.CommandMetrics;
 import com.evilco.bukkit.util.plugin.java.ReflectionUtility;
 import com.google.common.reflect.ClassPath;
 import org.bukkit.command.CommandMap;
@@ -28,13 +34,113 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.command.SimpleCommandMap;
 import org.bukkit.plugin.Plugin;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 public class CommandManager {
 
+	/**
+	 * Defines the default amount of threads used for asynchronous commands.
+	 */
+	public static final int DEFAULT_ASYNC_THREADS = 4;
+
+	/**
+	 * Defines the default amount of asynchronous commands which may wait for execution.
+	 */
+	public static final int DEFAULT_ASYNC_QUEUE_SIZE = 256;
+
+	/**
+	 * Stores the amount of asynchronous command threads.
+	 */
+	protected int asyncThreads = DEFAULT_ASYNC_THREADS;
+
+	/**
+	 * Stores the amount of asynchronous commands which may wait for execution.
+	 */
+	protected int asyncQueueSize = DEFAULT_ASYNC_QUEUE_SIZE;
+
+	/**
+	 * Stores the executor for asynchronous commands (created on demand).
+	 */
+	protected ExecutorService executor = null;
+
+	/**
+	 * Stores all registered root commands by their (lower case) names (replaced as a whole on updates).
+	 */
+	protected volatile Map<String, DynamicCommand> commands = new HashMap<String, DynamicCommand> ();
+
+	/**
+	 * Stores all commands per handler class (in registration order).
+	 */
+	protected final Map<Class<?>, List<DynamicCommand>> handlerCommands = new LinkedHashMap<Class<?>, List<DynamicCommand>> ();
+
+	/**
+	 * Stores the validated declarations per handler class (used to restore handlers if a replacement fails).
+	 */
+	protected final Map<Class<?>, List<Declaration>> handlerDeclarations = new HashMap<Class<?>, List<Declaration>> ();
+
+	/**
+	 * Stores the registration generation (incremented whenever commands are registered, bound or removed).
+	 */
+	protected final AtomicInteger registrationGeneration = new AtomicInteger ();
+
+	/**
+	 * Stores all argument converters.
+	 */
+	protected final ConverterRegistry converterRegistry = new ConverterRegistry ();
+
+	/**
+	 * Stores all named argument completers.
+	 */
+	protected final CompleterRegistry completerRegistry = new CompleterRegistry ();
+
+	/**
+	 * Stores the completion cache shared by all commands.
+	 */
+	protected final CompletionCache completionCache = new CompletionCache ();
+
+	/**
+	 * Stores the permission cache shared by all commands.
+	 */
+	protected final PermissionCache permissionCache = new PermissionCache ();
+
+	/**
+	 * Indicates whether the manager listener has been registered.
+	 */
+	protected boolean listenerRegistered = false;
+
+	/**
+	 * Stores all scheduled batches which have not finished yet.
+	 */
+	protected final Set<CommandBatch> batches = Collections.newSetFromMap (new ConcurrentHashMap<CommandBatch, Boolean> ());
+
+	/**
+	 * Stores the cooldowns of all commands.
+	 */
+	protected final CooldownTable cooldowns = new CooldownTable ();
+
+	/**
+	 * Stores the rate limiter applied to all commands (if any).
+	 */
+	protected volatile RateLimiter rateLimiter = null;
+
+	/**
+	 * Stores the names of all metrics exported via JMX (or null if metrics are not exported).
+	 */
+	protected Map<DynamicCommand, ObjectName> exportedMetrics = null;
+
 	/**
 	 * Stores the proper bukkit command map.
 	 */
@@ -45,6 +151,11 @@ public class CommandManager {
 	 */
 	protected CommandMap fallbackCommandMap = null;
 
+	/**
+	 * Stores the fallback listener (if any).
+	 */
+	protected FallbackCommandListener fallbackListener = null;
+
 	/**
 	 * Stores a logging instance.
 	 */
@@ -66,21 +177,442 @@ public class CommandManager {
 		this.logger = Logger.getLogger(this.getClass().getSimpleName());
 		this.logger.setParent(plugin.getLogger());
 
+		// register listener (requires an enabled plugin)
+		if (plugin.isEnabled ()) this.registerListener ();
+
+		// load compile-time index (if any)
+		if (this.loadCommandHandlerIndex ()) return;
+
 		// search for sub package
 		Package p = plugin.getClass().getPackage();
 
+		// scan plugin archive (classes are only loaded if they reference the handler annotation)
+		List<String> handlerClassNames = (p != null ? new CommandHandlerScanner (plugin, this.logger).scan (p.getName ()) : null);
+
+		if (handlerClassNames != null) {
+			for (String handlerClassName : handlerClassNames) {
+				// load class
+				Class<?> handlerClass = this.loadHandlerClass (handlerClassName);
+
+				// register handlers
+				if (handlerClass != null) this.registerScannedCommandHandler (handlerClass);
+			}
+
+			return;
+		}
+
+		// fall back to class path scanning
 		if (p != null) {
 			try {
 				ClassPath classPath = ClassPath.from(plugin.getClass().getClassLoader());
 
 				for (ClassPath.ClassInfo classInfo : classPath.getTopLevelClassesRecursive(p.getName())) {
-					if (classInfo.getClass().isAnnotationPresent(CommandHandler.class)) this.registerCommandHandler(classInfo.getClass());
+					// load class
+					Class<?> handlerClass = this.loadHandlerClass (classInfo.getName ());
+
+					// register handlers
+					if (handlerClass != null) this.registerScannedCommandHandler (handlerClass);
 				}
 
 			} catch (Exception ex) { } // ignore
 		}
 	}
 
+	/**
+	 * Loads the command handler index generated by the annotation processor (if any).
+	 * @return True if the index was present and has been processed.
+	 */
+	protected boolean loadCommandHandlerIndex () {
+		// get index resource
+		InputStream inputStream = this.plugin.getResource (CommandHandlerIndex.RESOURCE_NAME);
+
+		// no index available
+		if (inputStream == null) return false;
+
+		// read index class name
+		String indexClassName = null;
+		BufferedReader reader = null;
+
+		try {
+			reader = new BufferedReader (new InputStreamReader (inputStream, "UTF-8"));
+			String line;
+
+			while ((line = reader.readLine ()) != null) {
+				// skip empty lines and comments
+				line = line.trim ();
+				if (line.isEmpty () || line.startsWith ("#")) continue;
+
+				// store name
+				indexClassName = line;
+				break;
+			}
+		} catch (IOException ex) {
+			this.logger.log (Level.WARNING, "Cannot read command handler index: " + ex.getMessage () + ". Falling back to classpath scanning.");
+			return false;
+		} finally {
+			try {
+				inputStream.close ();
+			} catch (Exception ex) { } // ignore
+		}
+
+		// empty index
+		if (indexClassName == null) return false;
+
+		// create index
+		CommandHandlerIndex index;
+
+		try {
+			index = Class.forName (indexClassName, true, this.plugin.getClass ().getClassLoader ()).asSubclass (CommandHandlerIndex.class).newInstance ();
+		} catch (Exception ex) {
+			this.logger.log (Level.WARNING, "Cannot load command handler index " + indexClassName + ": " + ex.getMessage () + ". Falling back to classpath scanning.");
+			return false;
+		}
+
+		// register handlers
+		for (Class<?> handlerClass : index.getCommandHandlers ()) this.registerScannedCommandHandler (handlerClass);
+
+		return true;
+	}
+
+	/**
+	 * Loads a scanned class (without running static initializers).
+	 * @param className
+	 * @return The class or null if it cannot be loaded or is not annotated with CommandHandler.
+	 */
+	protected Class<?> loadHandlerClass (String className) {
+		try {
+			Class<?> handlerClass = Class.forName (className, false, this.plugin.getClass ().getClassLoader ());
+			return (handlerClass.isAnnotationPresent (CommandHandler.class) ? handlerClass : null);
+		} catch (ClassNotFoundException ex) { // ignore
+		} catch (LinkageError ex) { } // ignore broken classes
+
+		return null;
+	}
+
+	/**
+	 * Registers a discovered command handler and logs registration errors.
+	 * @param handlerClass
+	 */
+	protected void registerScannedCommandHandler (Class<?> handlerClass) {
+		try {
+			this.registerCommandHandler (handlerClass);
+		} catch (CommandRegistrationException ex) {
+			this.logger.log (Level.SEVERE, "Cannot register command handler \"" + handlerClass.getCanonicalName () + "\": " + ex.getMessage ());
+			this.logger.log (Level.SEVERE, "Please report this error to the plugin author(s) (" + this.plugin.getDescription ().getAuthors ().toString () + ")");
+		}
+	}
+
+	/**
+	 * Calls a task on the main thread and returns its future result.
+	 * Tasks are executed immediately if called from the main thread.
+	 * @param task
+	 * @param <T>
+	 * @return
+	 */
+	public <T> Future<T> callSynchronously (Callable<T> task) {
+		// execute directly (waiting for the scheduler would block forever)
+		if (this.plugin.getServer ().isPrimaryThread ()) {
+			FutureTask<T> future = new FutureTask<T> (task);
+			future.run ();
+
+			return future;
+		}
+
+		return this.plugin.getServer ().getScheduler ().callSyncMethod (this.plugin, task);
+	}
+
+	/**
+	 * Runs a task on the main thread.
+	 * Tasks are executed immediately if called from the main thread.
+	 * @param task
+	 */
+	public void runSynchronously (Runnable task) {
+		if (this.plugin.getServer ().isPrimaryThread ())
+			task.run ();
+		else
+			this.plugin.getServer ().getScheduler ().runTask (this.plugin, task);
+	}
+
+	/**
+	 * Creates the executor for asynchronous commands.
+	 * Virtual threads are used if supported by the JVM.
+	 * @return
+	 */
+	protected ExecutorService createExecutor () {
+		// get thread factory
+		ThreadFactory threadFactory = createVirtualThreadFactory (this.plugin.getName () + "-command-");
+
+		if (threadFactory == null) {
+			threadFactory = new ThreadFactory () {
+
+				/**
+				 * Stores the thread counter.
+				 */
+				protected final AtomicInteger counter = new AtomicInteger ();
+
+				/**
+				 * {@inheritDoc}
+				 */
+				@Override
+				public Thread newThread (Runnable runnable) {
+					Thread thread = new Thread (runnable, CommandManager.this.plugin.getName () + "-command-" + this.counter.getAndIncrement ());
+					thread.setDaemon (true);
+
+					return thread;
+				}
+			};
+		}
+
+		// create bounded executor
+		ThreadPoolExecutor executor = new ThreadPoolExecutor (this.asyncThreads, this.asyncThreads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable> (this.asyncQueueSize), threadFactory);
+		executor.allowCoreThreadTimeOut (true);
+
+		return executor;
+	}
+
+	/**
+	 * Creates a virtual thread factory (if supported by the JVM).
+	 * @param prefix
+	 * @return
+	 */
+	protected static ThreadFactory createVirtualThreadFactory (String prefix) {
+		try {
+			Class<?> builderType = Class.forName ("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod ("ofVirtual").invoke (null);
+
+			builder = builderType.getMethod ("name", String.class, long.class).invoke (builder, prefix, 0L);
+			return ((ThreadFactory) builderType.getMethod ("factory").invoke (builder));
+		} catch (Exception ex) { } // not supported
+
+		return null;
+	}
+
+	/**
+	 * Returns the executor for asynchronous commands.
+	 * @return
+	 */
+	public synchronized ExecutorService getExecutor () {
+		if (this.executor == null) {
+			this.executor = this.createExecutor ();
+
+			// shut down executor with the plugin
+			this.registerListener ();
+		}
+
+		return this.executor;
+	}
+
+	/**
+	 * Registers the manager listener (unless already registered).
+	 */
+	protected synchronized void registerListener () {
+		if (this.listenerRegistered) return;
+
+		this.plugin.getServer ().getPluginManager ().registerEvents (new CommandManagerListener (this), this.plugin);
+		this.listenerRegistered = true;
+	}
+
+	/**
+	 * Executes multiple command lines on behalf of a sender (in order, on the current thread).
+	 * @param sender
+	 * @param lines
+	 * @return The amount of handled lines (see {@link CommandBatch#execute()}).
+	 */
+	public int dispatchBatch (CommandSender sender, Iterable<String> lines) {
+		CommandBatch batch = new CommandBatch (this, sender, false);
+		batch.addAll (lines);
+
+		return batch.execute ();
+	}
+
+	/**
+	 * Executes multiple command lines on behalf of a sender on the main thread (spread across ticks).
+	 * @param sender
+	 * @param lines
+	 * @param grouped Whether lines are grouped by command (changes the execution order).
+	 * @param budget The time which may be spent per tick.
+	 * @param unit
+	 * @return A future which provides the amount of handled lines (see {@link CommandBatch#execute()}).
+	 */
+	public Future<Integer> scheduleBatch (CommandSender sender, Iterable<String> lines, boolean grouped, long budget, TimeUnit unit) {
+		CommandBatch batch = new CommandBatch (this, sender, grouped);
+		batch.addAll (lines);
+
+		return batch.schedule (budget, unit);
+	}
+
+	/**
+	 * Returns the registration generation (changes whenever commands are registered, bound or removed).
+	 * @return
+	 */
+	public int getRegistrationGeneration () {
+		return this.registrationGeneration.get ();
+	}
+
+	/**
+	 * Returns the cooldowns of all commands.
+	 * @return
+	 */
+	public CooldownTable getCooldowns () {
+		return this.cooldowns;
+	}
+
+	/**
+	 * Returns the rate limiter applied to all commands.
+	 * @return The rate limiter (or null if commands are not limited globally).
+	 */
+	public RateLimiter getRateLimiter () {
+		return this.rateLimiter;
+	}
+
+	/**
+	 * Limits the amount of commands a single sender may execute (in addition to per-command limits).
+	 * @param limit The amount of commands per period (0 disables the limit).
+	 * @param period
+	 * @param unit
+	 */
+	public void setRateLimit (int limit, long period, TimeUnit unit) {
+		this.rateLimiter = (limit > 0 ? new RateLimiter (limit, period, unit) : null);
+	}
+
+	/**
+	 * Returns the permission cache.
+	 * @return
+	 */
+	public PermissionCache getPermissionCache () {
+		return this.permissionCache;
+	}
+
+	/**
+	 * Defines the amount of threads and pending commands for asynchronous commands.
+	 * Note: This only affects executors which have not been created yet.
+	 * @param threads
+	 * @param queueSize
+	 */
+	public void setAsyncLimits (int threads, int queueSize) {
+		this.asyncThreads = threads;
+		this.asyncQueueSize = queueSize;
+	}
+
+	/**
+	 * Shuts down all resources used by this manager.
+	 * Called automatically when the parent plugin is disabled.
+	 */
+	public synchronized void shutdown () {
+		if (this.executor != null) this.executor.shutdown ();
+		this.executor = null;
+
+		// stop scheduled batches
+		for (CommandBatch batch : this.batches) batch.cancel ();
+
+		// remove metrics from JMX
+		if (this.exportedMetrics != null) {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer ();
+
+			for (ObjectName name : this.exportedMetrics.values ()) this.unexportMetrics (server, name);
+			this.exportedMetrics = null;
+		}
+	}
+
+	/**
+	 * Exports the metrics of all (current and future) commands via JMX.
+	 * Metrics are registered as com.evilco.bukkit.util.plugin:type=CommandMetrics,plugin=&lt;plugin&gt;,command=&lt;path&gt;
+	 * and removed when the manager shuts down.
+	 */
+	public synchronized void exportMetrics () {
+		if (this.exportedMetrics != null) return;
+		this.exportedMetrics = new HashMap<DynamicCommand, ObjectName> ();
+
+		// export existing commands
+		for (DynamicCommand command : this.getHandlerCommands ()) this.exportMetrics (command);
+	}
+
+	/**
+	 * Exports the metrics of a single command via JMX (if metrics are exported).
+	 * @param command
+	 */
+	protected synchronized void exportMetrics (DynamicCommand command) {
+		if (this.exportedMetrics == null) return;
+
+		try {
+			ObjectName name = new ObjectName ("com.evilco.bukkit.util.plugin:type=CommandMetrics,plugin=" + ObjectName.quote (this.plugin.getName ()) + ",command=" + ObjectName.quote (command.getPath ()));
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer ();
+
+			// replace stale registrations (e.g. after a reload)
+			if (server.isRegistered (name)) server.unregisterMBean (name);
+			server.registerMBean (command.getMetrics (), name);
+
+			this.exportedMetrics.put (command, name);
+		} catch (JMException ex) {
+			this.logger.log (Level.WARNING, "Cannot export metrics of command " + command.getPath () + " via JMX: " + ex.getMessage (), ex);
+		}
+	}
+
+	/**
+	 * Removes the metrics of a single command from JMX (if exported).
+	 * @param command
+	 */
+	protected synchronized void unexportMetrics (DynamicCommand command) {
+		if (this.exportedMetrics == null) return;
+
+		ObjectName name = this.exportedMetrics.remove (command);
+		if (name != null) this.unexportMetrics (ManagementFactory.getPlatformMBeanServer (), name);
+	}
+
+	/**
+	 * Removes metrics from JMX.
+	 * @param server
+	 * @param name
+	 */
+	protected void unexportMetrics (MBeanServer server, ObjectName name) {
+		try {
+			if (server.isRegistered (name)) server.unregisterMBean (name);
+		} catch (JMException ex) {
+			this.logger.log (Level.WARNING, "Cannot remove metrics " + name + " from JMX: " + ex.getMessage (), ex);
+		}
+	}
+
+	/**
+	 * Returns the metrics of all commands with a handler by command path.
+	 * @return
+	 */
+	public SortedMap<String, CommandMetrics> getMetrics () {
+		SortedMap<String, CommandMetrics> metrics = new TreeMap<String, CommandMetrics> ();
+		for (DynamicCommand command : this.getHandlerCommands ()) metrics.put (command.getPath (), command.getMetrics ());
+
+		return metrics;
+	}
+
+	/**
+	 * Returns the metrics of a command.
+	 * @param path The command path (names separated by spaces).
+	 * @return The metrics (or null if no such command exists).
+	 */
+	public CommandMetrics getMetrics (String path) {
+		DynamicCommand command = this.getCommandByPath (path);
+		return (command != null ? command.getMetrics () : null);
+	}
+
+	/**
+	 * Registers a command which displays (or resets) the metrics of all commands.
+	 * @param name The command name.
+	 * @param permission The permission required to use the command.
+	 */
+	public void registerMetricsCommand (String name, String permission) {
+		DynamicCommand command = new DynamicCommand (new String[] { name }, "r", "Displays command metrics.", "/" + name + " [-r] [command]", this, new MetricsCommandInvoker (this));
+		command.setPermissions (new String[] { permission });
+
+		this.registerDynamicCommand (command);
+	}
+
+	/**
+	 * Returns the parent plugin.
+	 * @return
+	 */
+	public Plugin getPlugin () {
+		return this.plugin;
+	}
+
 	/**
 	 * Returns the command map.
 	 * @return
@@ -102,7 +634,9 @@ public class CommandManager {
 		this.fallbackCommandMap = new SimpleCommandMap (this.plugin.getServer ());
 
 		// register fallback listener
-		this.plugin.getServer ().getPluginManager ().registerEvents ((new FallbackCommandListener (this)), this.plugin);
+		this.fallbackListener = new FallbackCommandListener (this);
+		this.updateFallbackLabels ();
+		this.plugin.getServer ().getPluginManager ().registerEvents (this.fallbackListener, this.plugin);
 
 		// return fallback
 		return this.fallbackCommandMap;
@@ -120,33 +654,52 @@ public class CommandManager {
 			return;
 		}
 
-		// create map
-		Map<String, Method> objectMap = new HashMap<String, Method>();
-		Object object;
+		CommandHandlerFactory factory;
 
+		// prepare instantiation (handlers are created on first use)
 		try {
-			object = obj.newInstance();
-		} catch (InstantiationException ex) {
-			this.logger.log(Level.SEVERE, "Cannot instantiate command class " + obj.getCanonicalName() + " for plugin " + this.plugin.getName() + ": Unknown problem", ex);
-			this.logger.log(Level.SEVERE, "Please report this error to the plugin author(s) (" + this.plugin.getDescription().getAuthors().toString() + ")");
-			return;
-		} catch (IllegalAccessException ex) {
+			factory = new CommandHandlerFactory(obj);
+		} catch (CommandRegistrationException ex) {
 			this.logger.log(Level.SEVERE, "Cannot instantiate command class " + obj.getCanonicalName() + " for plugin " + this.plugin.getName() + "!", ex);
 			this.logger.log(Level.SEVERE, "Please report this error to the plugin author(s) (" + this.plugin.getDescription().getAuthors().toString() + ")");
 			return;
 		}
 
-		// walk methods
-		for(Method method : obj.getMethods()) {
-			// skip classes without annotations
-			if (!method.isAnnotationPresent(Command.class)) continue;
+		// validate all commands before registering any of them
+		for (Declaration declaration : this.prepareCommandHandler (factory)) this.registerCommand (declaration, null);
+	}
 
-			// decode annotation
-			Command cmd = method.getAnnotation(Command.class);
+	/**
+	 * Validates all commands of a command handler (parent commands first).
+	 * @param factory
+	 * @return
+	 * @throws CommandRegistrationException
+	 */
+	protected List<Declaration> prepareCommandHandler (CommandHandlerFactory factory) throws CommandRegistrationException {
+		// collect methods
+		List<Method> methods = new ArrayList<Method> ();
 
-			// register command
-			this.registerCommand (cmd, obj, method);
+		for (Method method : factory.getType ().getMethods ()) {
+			// skip classes without annotations
+			if (method.isAnnotationPresent (Command.class)) methods.add (method);
 		}
+
+		// register parent commands first
+		Collections.sort (methods, new Comparator<Method> () {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public int compare (Method method1, Method method2) {
+				return (method1.getAnnotation (Command.class).parent ().length - method2.getAnnotation (Command.class).parent ().length);
+			}
+		});
+
+		List<Declaration> declarations = new ArrayList<Declaration> (methods.size ());
+		for (Method method : methods) declarations.add (this.prepareCommand (method.getAnnotation (Command.class), factory, method));
+
+		return declarations;
 	}
 
 	/**
@@ -156,30 +709,485 @@ public class CommandManager {
 	 * @param handlerMethod
 	 */
 	public void registerCommand (Command command, Object handlerObject, Method handlerMethod) throws CommandRegistrationException {
-		// get command map
-		CommandMap map = this.getCommandMap ();
+		this.registerCommand (command, new CommandHandlerFactory (handlerObject), handlerMethod);
+	}
 
+	/**
+	 * Registers a new command.
+	 * Handlers which have not been instantiated yet are instantiated and bound on first dispatch.
+	 * @param command
+	 * @param handlerFactory
+	 * @param handlerMethod
+	 */
+	public void registerCommand (Command command, CommandHandlerFactory handlerFactory, Method handlerMethod) throws CommandRegistrationException {
+		this.registerCommand (this.prepareCommand (command, handlerFactory, handlerMethod), null);
+	}
+
+	/**
+	 * Validates a command and binds its handler (nothing is registered).
+	 * @param command
+	 * @param handlerFactory
+	 * @param handlerMethod
+	 * @return
+	 * @throws CommandRegistrationException
+	 */
+	protected Declaration prepareCommand (Command command, CommandHandlerFactory handlerFactory, Method handlerMethod) throws CommandRegistrationException {
 		// validate command arguments
 		List<Class<?>> argumentTypes = new ArrayList<Class<?>> (Arrays.asList (handlerMethod.getParameterTypes ()));
 
 		// verify size
-		if (argumentTypes.size () < 3) throw new CommandRegistrationException ("The command handler " + handlerObject.getClass ().getCanonicalName () + " -> " + handlerMethod.getName () + " does not have the correct method signature: CommandSender, String, CommandContext.");
+		if (argumentTypes.size () < 3) throw new CommandRegistrationException ("The command handler " + handlerFactory.getType ().getCanonicalName () + " -> " + handlerMethod.getName () + " does not have the correct method signature: CommandSender, String, CommandContext.");
 
 		try {
 			argumentTypes.get (0).asSubclass (CommandSender.class);
 			argumentTypes.get (1).asSubclass (String.class);
 			argumentTypes.get (2).asSubclass (CommandContext.class);
 		} catch (ClassCastException ex) {
-			throw new CommandRegistrationException ("The command handler " + handlerObject.getClass ().getCanonicalName () + " -> " + handlerMethod.getName () + " does not have the correct method signature: CommandSender, String, CommandContext.");
+			throw new CommandRegistrationException ("The command handler " + handlerFactory.getType ().getCanonicalName () + " -> " + handlerMethod.getName () + " does not have the correct method signature: CommandSender, String, CommandContext.");
 		}
 
-		// create new command
-		DynamicCommand newCommand = new DynamicCommand (command.aliases (), command.flags (), command.description (), command.usage (), this, handlerObject, handlerMethod);
+		// resolve converters for additional parameters
+		ArgumentConverter[] converters = new ArgumentConverter[argumentTypes.size () - 3];
+		for (int i = 0; i < converters.length; i++) converters[i] = this.converterRegistry.get (argumentTypes.get (i + 3));
+
+		// bind handler
+		Object handlerObject = handlerFactory.getInstance ();
+		CommandInvoker invoker = (handlerObject != null ? new MethodHandleCommandInvoker (handlerObject, handlerMethod, converters) : new LazyCommandInvoker (handlerFactory, handlerMethod, converters));
+
+		return new Declaration (command, handlerFactory.getType (), handlerMethod, invoker);
+	}
+
+	/**
+	 * Registers a validated command.
+	 * @param declaration
+	 * @param replaceable Commands of a replaced handler which are bound to the new handler in place if they share a path
+	 * (reused commands are removed from the set, may be null).
+	 * @throws CommandRegistrationException
+	 */
+	protected void registerCommand (Declaration declaration, Set<DynamicCommand> replaceable) throws CommandRegistrationException {
+		Command command = declaration.command;
+
+		// get command map
+		CommandMap map = this.getCommandMap ();
+
+		// find existing command (parents are created implicitly)
+		DynamicCommand parent = (command.parent ().length > 0 ? this.getCommandPath (command.parent ()) : null);
+		DynamicCommand newCommand = (parent != null ? parent.getSubcommandExact (command.aliases ()[0]) : this.commands.get (command.aliases ()[0].toLowerCase ()));
+		boolean reused = (newCommand != null && replaceable != null && replaceable.remove (newCommand));
+		boolean registered = false;
+
+		if (reused && newCommand.getAliases ().equals (Arrays.asList (command.aliases ()))) {
+			// swap the handler of a replaced command in place (the command stays registered)
+			newCommand.bind (command.aliases (), command.flags (), command.description (), command.usage (), declaration.invoker);
+			registered = true;
+		} else if (newCommand != null && (reused || !newCommand.hasHandler ())) {
+			// allow alias updates
+			if (parent == null)
+				this.unregisterDynamicCommand (newCommand);
+			else if (reused)
+				parent.removeSubcommand (newCommand);
+
+			// bind handler to implicitly created (or replaced) command
+			newCommand.bind (command.aliases (), command.flags (), command.description (), command.usage (), declaration.invoker);
+		} else {
+			// verify subcommand
+			if (newCommand != null && parent != null) throw new CommandRegistrationException ("The command handler " + declaration.handlerType.getCanonicalName () + " -> " + declaration.handlerMethod.getName () + " declares the subcommand " + command.aliases ()[0] + " which is already registered.");
+
+			// create new command
+			newCommand = new DynamicCommand (command.aliases (), command.flags (), command.description (), command.usage (), this, declaration.invoker);
+		}
 
 		// set permissions
 		newCommand.setPermissions (command.permissions ());
+		newCommand.setArgumentLimits (command.argumentsMin (), command.argumentsMax ());
+		newCommand.setAsynchronous (command.async ());
+		newCommand.setCooldown (command.cooldown ());
+		newCommand.setRateLimiter (command.rateLimit () > 0 ? new RateLimiter (command.rateLimit (), command.rateLimitPeriod (), TimeUnit.MILLISECONDS) : null);
+		newCommand.setCompleters (this.compileCompleters (command.completions ()));
 
 		// register
-		map.register (newCommand.getName (), newCommand);
+		if (!registered) {
+			if (parent != null)
+				parent.addSubcommand (newCommand);
+			else
+				this.registerDynamicCommand (newCommand);
+		}
+
+		// remember handler
+		synchronized (this.handlerCommands) {
+			List<DynamicCommand> commands = this.handlerCommands.get (declaration.handlerType);
+			if (commands == null) this.handlerCommands.put (declaration.handlerType, (commands = new ArrayList<DynamicCommand> ()));
+
+			List<Declaration> declarations = this.handlerDeclarations.get (declaration.handlerType);
+			if (declarations == null) this.handlerDeclarations.put (declaration.handlerType, (declarations = new ArrayList<Declaration> ()));
+
+			commands.add (newCommand);
+			declarations.add (declaration);
+		}
+
+		// export metrics
+		this.exportMetrics (newCommand);
+	}
+
+	/**
+	 * Returns all registered command handler classes.
+	 * @return
+	 */
+	public Set<Class<?>> getCommandHandlers () {
+		synchronized (this.handlerCommands) {
+			return new LinkedHashSet<Class<?>> (this.handlerCommands.keySet ());
+		}
+	}
+
+	/**
+	 * Unregisters all commands of a command handler.
+	 * @param handler
+	 * @return True if the handler was registered.
+	 */
+	public boolean unregisterCommandHandler (Class<?> handler) {
+		List<DynamicCommand> commands;
+
+		synchronized (this.handlerCommands) {
+			commands = this.handlerCommands.remove (handler);
+			this.handlerDeclarations.remove (handler);
+		}
+
+		if (commands == null) return false;
+
+		// unregister subcommands first
+		for (int i = (commands.size () - 1); i >= 0; i--) this.unregisterCommand (commands.get (i));
+
+		return true;
+	}
+
+	/**
+	 * Replaces a command handler with a new instance of itself.
+	 * @param handler
+	 * @throws CommandRegistrationException
+	 */
+	public void reloadCommandHandler (Class<?> handler) throws CommandRegistrationException {
+		this.replaceCommandHandler (handler, handler);
+	}
+
+	/**
+	 * Replaces a command handler with another (e.g. a newer version loaded by a different class loader).
+	 * All commands of the new handler are validated before anything is changed. Commands which exist in both handlers
+	 * are bound to the new handler in place (they stay registered), commands which only exist in the old handler are
+	 * removed afterwards. If the new handler cannot be registered, the old handler is restored and the exception is
+	 * rethrown. All references to the old handler instance are dropped on success.
+	 * @param oldHandler
+	 * @param newHandler
+	 * @throws CommandRegistrationException
+	 */
+	public void replaceCommandHandler (Class<?> oldHandler, Class<?> newHandler) throws CommandRegistrationException {
+		if (!newHandler.isAnnotationPresent (CommandHandler.class)) throw new CommandRegistrationException ("Cannot register command handler \"" + newHandler.getCanonicalName () + "\": CommandHandler annotation is not present.");
+
+		// validate the new handler before the old one is touched
+		List<Declaration> declarations = this.prepareCommandHandler (new CommandHandlerFactory (newHandler));
+
+		// detach the old handler
+		List<DynamicCommand> previousCommands;
+		List<Declaration> previousDeclarations;
+
+		synchronized (this.handlerCommands) {
+			previousCommands = this.handlerCommands.remove (oldHandler);
+			previousDeclarations = this.handlerDeclarations.remove (oldHandler);
+		}
+
+		if (previousCommands == null) previousCommands = Collections.emptyList ();
+
+		try {
+			this.publish (declarations, new LinkedHashSet<DynamicCommand> (previousCommands));
+		} catch (CommandRegistrationException ex) {
+			// restore the old handler (replacing all commands which have been registered so far)
+			Set<DynamicCommand> replaceable = new LinkedHashSet<DynamicCommand> (previousCommands);
+
+			synchronized (this.handlerCommands) {
+				List<DynamicCommand> commands = this.handlerCommands.remove (newHandler);
+				this.handlerDeclarations.remove (newHandler);
+
+				if (commands != null) replaceable.addAll (commands);
+			}
+
+			try {
+				if (previousDeclarations != null) this.publish (previousDeclarations, replaceable);
+			} catch (CommandRegistrationException rollbackEx) {
+				ex.addSuppressed (rollbackEx);
+			}
+
+			throw ex;
+		}
+	}
+
+	/**
+	 * Registers validated commands and removes all replaceable commands which have not been reused.
+	 * @param declarations
+	 * @param replaceable
+	 * @throws CommandRegistrationException
+	 */
+	protected void publish (List<Declaration> declarations, Set<DynamicCommand> replaceable) throws CommandRegistrationException {
+		for (Declaration declaration : declarations) this.registerCommand (declaration, replaceable);
+
+		// remove remaining commands (subcommands first)
+		List<DynamicCommand> remaining = new ArrayList<DynamicCommand> (replaceable);
+		for (int i = (remaining.size () - 1); i >= 0; i--) this.unregisterCommand (remaining.get (i));
+
+		replaceable.clear ();
+
+		// drop cached references
+		this.completionCache.invalidateAll ();
+	}
+
+	/**
+	 * Unregisters a command.
+	 * Commands which still have subcommands keep routing to them while implicitly created parents without remaining
+	 * subcommands are removed as well.
+	 * @param command
+	 */
+	public void unregisterCommand (DynamicCommand command) {
+		command.unbind ();
+		this.unexportMetrics (command);
+
+		// remove empty commands
+		while (command != null && !command.hasHandler () && command.getSubcommands ().isEmpty ()) {
+			DynamicCommand parent = command.getParent ();
+
+			if (parent != null)
+				parent.removeSubcommand (command);
+			else
+				this.unregisterDynamicCommand (command);
+
+			command = parent;
+		}
+
+		// drop cached references
+		this.completionCache.invalidateAll ();
+	}
+
+	/**
+	 * Compiles completer declarations.
+	 * @param declarations
+	 * @return
+	 */
+	protected ArgumentCompleter[] compileCompleters (String[] declarations) {
+		if (declarations.length == 0) return null;
+
+		// compile declarations
+		ArgumentCompleter[] completers = new ArgumentCompleter[declarations.length];
+		for (int i = 0; i < declarations.length; i++) completers[i] = this.completerRegistry.compile (declarations[i]);
+
+		return completers;
+	}
+
+	/**
+	 * Returns the completion cache.
+	 * @return
+	 */
+	public CompletionCache getCompletionCache () {
+		return this.completionCache;
+	}
+
+	/**
+	 * Registers an argument converter for additional handler parameters of the supplied type.
+	 * @param type
+	 * @param converter
+	 */
+	public void registerConverter (Class<?> type, ArgumentConverter converter) {
+		this.converterRegistry.register (type, converter);
+	}
+
+	/**
+	 * Registers a named argument completer (referenced as "@name" in command declarations).
+	 * @param name
+	 * @param completer
+	 */
+	public void registerCompleter (String name, ArgumentCompleter completer) {
+		this.completerRegistry.register (name, completer);
+		this.completionCache.invalidateAll ();
+	}
+
+	/**
+	 * Registers a root command.
+	 * @param command
+	 */
+	protected void registerDynamicCommand (DynamicCommand command) {
+		synchronized (this.handlerCommands) {
+			Map<String, DynamicCommand> commands = new HashMap<String, DynamicCommand> (this.commands);
+			commands.put (command.getName ().toLowerCase (), command);
+
+			this.commands = commands;
+		}
+
+		this.getCommandMap ().register (command.getName (), command);
+		this.registrationGeneration.incrementAndGet ();
+
+		// update fallback labels
+		this.updateFallbackLabels ();
+	}
+
+	/**
+	 * Removes a root command (and all of its labels) from the command map.
+	 * @param command
+	 */
+	protected void unregisterDynamicCommand (DynamicCommand command) {
+		synchronized (this.handlerCommands) {
+			Map<String, DynamicCommand> commands = new HashMap<String, DynamicCommand> (this.commands);
+			if (commands.get (command.getName ().toLowerCase ()) == command) commands.remove (command.getName ().toLowerCase ());
+
+			this.commands = commands;
+		}
+
+		// remove labels (the command map does not support removals)
+		CommandMap map = this.getCommandMap ();
+		Map<String, org.bukkit.command.Command> knownCommands = ReflectionUtility.getField (map, "knownCommands");
+
+		if (knownCommands != null) {
+			Iterator<org.bukkit.command.Command> iterator = knownCommands.values ().iterator ();
+
+			while (iterator.hasNext ()) {
+				if (iterator.next () == command) iterator.remove ();
+			}
+		} else
+			this.logger.warning ("Cannot remove the labels of command " + command.getName () + " from the command map.");
+
+		command.unregister (map);
+		this.registrationGeneration.incrementAndGet ();
+
+		// update fallback labels
+		this.updateFallbackLabels ();
+	}
+
+	/**
+	 * Passes the labels of all root commands to the fallback listener (if any).
+	 */
+	protected void updateFallbackLabels () {
+		if (this.fallbackListener == null) return;
+
+		// collect labels (including prefixed labels)
+		Set<String> labels = new HashSet<String> ();
+
+		for (DynamicCommand command : this.commands.values ()) {
+			String prefix = command.getName ().toLowerCase () + ":";
+
+			labels.add (command.getName ());
+			labels.add (prefix + command.getName ());
+
+			for (String alias : command.getAliases ()) {
+				labels.add (alias);
+				labels.add (prefix + alias);
+			}
+		}
+
+		this.fallbackListener.setLabels (labels);
+	}
+
+	/**
+	 * Returns the command at the end of the supplied path (missing commands are created without handler).
+	 * @param path
+	 * @return
+	 * @throws CommandRegistrationException
+	 */
+	protected DynamicCommand getCommandPath (String[] path) throws CommandRegistrationException {
+		// find root
+		DynamicCommand command = this.commands.get (path[0].toLowerCase ());
+
+		if (command == null) {
+			command = new DynamicCommand (new String[] { path[0] }, "", "", "", this, null);
+			this.registerDynamicCommand (command);
+		}
+
+		// find subcommands
+		for (int i = 1; i < path.length; i++) {
+			DynamicCommand subcommand = command.getSubcommandExact (path[i]);
+
+			if (subcommand == null) {
+				subcommand = new DynamicCommand (new String[] { path[i] }, "", "", "", this, null);
+				command.addSubcommand (subcommand);
+			}
+
+			command = subcommand;
+		}
+
+		return command;
+	}
+
+	/**
+	 * Returns a registered root command.
+	 * @param name
+	 * @return
+	 */
+	public DynamicCommand getCommand (String name) {
+		return this.commands.get (name.toLowerCase ());
+	}
+
+	/**
+	 * Returns a registered command by its path.
+	 * @param path The command path (names separated by spaces).
+	 * @return The command (or null if no such command exists).
+	 */
+	public DynamicCommand getCommandByPath (String path) {
+		String[] names = path.trim ().split (" +");
+		DynamicCommand command = this.getCommand (names[0]);
+
+		for (int i = 1; i < names.length && command != null; i++) command = command.getSubcommandExact (names[i]);
+
+		return command;
+	}
+
+	/**
+	 * Returns all registered commands with a handler.
+	 * @return
+	 */
+	protected List<DynamicCommand> getHandlerCommands () {
+		List<DynamicCommand> handlerCommands = new ArrayList<DynamicCommand> ();
+		Deque<DynamicCommand> queue = new ArrayDeque<DynamicCommand> (this.commands.values ());
+
+		while (!queue.isEmpty ()) {
+			DynamicCommand command = queue.poll ();
+			if (command.hasHandler ()) handlerCommands.add (command);
+
+			queue.addAll (command.getSubcommands ());
+		}
+
+		return handlerCommands;
+	}
+
+	/**
+	 * Represents a validated command declaration with a bound handler.
+	 */
+	protected static class Declaration {
+
+		/**
+		 * Stores the command annotation.
+		 */
+		public final Command command;
+
+		/**
+		 * Stores the handler class.
+		 */
+		public final Class<?> handlerType;
+
+		/**
+		 * Stores the handler method.
+		 */
+		public final Method handlerMethod;
+
+		/**
+		 * Stores the bound handler.
+		 */
+		public final CommandInvoker invoker;
+
+		/**
+		 * @param command
+		 * @param handlerType
+		 * @param handlerMethod
+		 * @param invoker
+		 */
+		public Declaration (Command command, Class<?> handlerType, Method handlerMethod, CommandInvoker invoker) {
+			this.command = command;
+			this.handlerType = handlerType;
+			this.handlerMethod = handlerMethod;
+			this.invoker = invoker;
+		}
 	}
 }
@@ -0,0 +1,68 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.server.PluginDisableEvent;
+
+/**
+ * Keeps command manager caches up to date and releases its resources when its plugin is disabled.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class CommandManagerListener implements Listener {
+
+	/**
+	 * Stores the parent command manager.
+	 */
+	protected CommandManager manager;
+
+	/**
+	 * @param manager
+	 */
+	public CommandManagerListener (CommandManager manager) {
+		this.manager = manager;
+	}
+
+	/**
+	 * Drops cached results of leaving players.
+	 * @param event
+	 */
+	@EventHandler (priority = EventPriority.MONITOR)
+	public void onPlayerQuit (PlayerQuitEvent event) {
+		this.manager.getPermissionCache ().invalidate (event.getPlayer ());
+		this.manager.getCompletionCache ().invalidate (event.getPlayer ());
+	}
+
+	/**
+	 * Handles plugin shutdowns.
+	 * @param event
+	 */
+	@EventHandler (priority = EventPriority.MONITOR)
+	public void onPluginDisable (PluginDisableEvent event) {
+		if (event.getPlugin () != this.manager.getPlugin ()) return;
+
+		// release resources
+		this.manager.shutdown ();
+	}
+}
@@ -0,0 +1,210 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command;
+
+import java.util.UUID;
+
+/**
+ * Stores command cooldowns in an open addressing hash table of primitive keys and expiry times.
+ * Expired entries are reused in place (no removal is needed) and dropped whenever the table is rebuilt, which keeps the
+ * memory usage proportional to the amount of active cooldowns. Checks do not allocate.
+ * All times are in milliseconds of a monotonic clock (see {@link #now()}).
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class CooldownTable {
+
+	/**
+	 * Defines the initial (and minimal) capacity.
+	 */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	/**
+	 * Stores all keys (0 marks an empty slot).
+	 */
+	protected long[] keys = new long[DEFAULT_CAPACITY];
+
+	/**
+	 * Stores the expiry time per slot.
+	 */
+	protected long[] expiries = new long[DEFAULT_CAPACITY];
+
+	/**
+	 * Stores the amount of used slots (including expired entries).
+	 */
+	protected int size = 0;
+
+	/**
+	 * Returns the key of a sender and command.
+	 * @param sender The unique identifier of the sender.
+	 * @param command The command identifier.
+	 * @return
+	 */
+	public static long getKey (UUID sender, int command) {
+		long key = (sender.getMostSignificantBits () ^ (sender.getLeastSignificantBits () * 0x9E3779B97F4A7C15L) ^ (command * 0xC2B2AE3D27D4EB4FL));
+		return (key == 0 ? 1 : key);
+	}
+
+	/**
+	 * Returns the current time.
+	 * @return
+	 */
+	public static long now () {
+		return (System.nanoTime () / 1000000L);
+	}
+
+	/**
+	 * Spreads the bits of a key.
+	 * @param key
+	 * @return
+	 */
+	protected static int mix (long key) {
+		key ^= (key >>> 33);
+		key *= 0xFF51AFD7ED558CCDL;
+		key ^= (key >>> 33);
+
+		return ((int) key);
+	}
+
+	/**
+	 * Starts a cooldown unless it is already active.
+	 * @param key
+	 * @param now
+	 * @param duration
+	 * @return The remaining time of an active cooldown (or 0 if a new cooldown has been started).
+	 */
+	public synchronized long tryAcquire (long key, long now, long duration) {
+		int mask = (this.keys.length - 1);
+		int index = (mix (key) & mask);
+		int free = -1;
+
+		// find key
+		while (this.keys[index] != 0) {
+			if (this.keys[index] == key) {
+				long remaining = (this.expiries[index] - now);
+				if (remaining > 0) return remaining;
+
+				this.expiries[index] = (now + duration);
+				return 0;
+			}
+
+			// remember first expired slot
+			if (free == -1 && (this.expiries[index] - now) <= 0) free = index;
+
+			index = ((index + 1) & mask);
+		}
+
+		// reuse expired slot
+		if (free != -1) {
+			this.keys[free] = key;
+			this.expiries[free] = (now + duration);
+
+			return 0;
+		}
+
+		// use empty slot
+		this.keys[index] = key;
+		this.expiries[index] = (now + duration);
+
+		if ((++this.size * 4) >= (this.keys.length * 3)) this.rebuild (now);
+		return 0;
+	}
+
+	/**
+	 * Returns the remaining time of a cooldown.
+	 * @param key
+	 * @param now
+	 * @return The remaining time (or 0 if no cooldown is active).
+	 */
+	public synchronized long getRemaining (long key, long now) {
+		int index = this.find (key);
+		return (index != -1 ? Math.max (0, (this.expiries[index] - now)) : 0);
+	}
+
+	/**
+	 * Ends a cooldown.
+	 * @param key
+	 * @param now
+	 */
+	public synchronized void reset (long key, long now) {
+		int index = this.find (key);
+		if (index != -1) this.expiries[index] = now;
+	}
+
+	/**
+	 * Returns the slot of a key.
+	 * @param key
+	 * @return The slot (or -1 if the key is not present).
+	 */
+	protected int find (long key) {
+		int mask = (this.keys.length - 1);
+		int index = (mix (key) & mask);
+
+		while (this.keys[index] != 0) {
+			if (this.keys[index] == key) return index;
+			index = ((index + 1) & mask);
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Rebuilds the table without expired entries (the capacity grows or shrinks to fit all active cooldowns).
+	 * @param now
+	 */
+	protected void rebuild (long now) {
+		// count active entries
+		int active = 0;
+
+		for (int i = 0; i < this.keys.length; i++) {
+			if (this.keys[i] != 0 && (this.expiries[i] - now) > 0) active++;
+		}
+
+		// calculate capacity (at most half full)
+		int capacity = DEFAULT_CAPACITY;
+		while (capacity < (active * 2)) capacity <<= 1;
+
+		// copy active entries
+		long[] keys = this.keys;
+		long[] expiries = this.expiries;
+
+		this.keys = new long[capacity];
+		this.expiries = new long[capacity];
+		this.size = active;
+
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] == 0 || (expiries[i] - now) <= 0) continue;
+
+			int index = (mix (keys[i]) & (capacity - 1));
+			while (this.keys[index] != 0) index = ((index + 1) & (capacity - 1));
+
+			this.keys[index] = keys[i];
+			this.expiries[index] = expiries[i];
+		}
+	}
+
+	/**
+	 * Returns the amount of used slots (including expired entries which have not been reused yet).
+	 * @return
+	 */
+	public synchronized int size () {
+		return this.size;
+	}
+}
@@ -13,12 +13,22 @@
  */
 package com.evilco.bukkit.util.plugin.command;
 
+import com.evilco.bukkit.util.plugin.command.completion.ArgumentCompleter;
+import com.evilco.bukkit.util.plugin.command.completion.CompletionCache;
+import com.evilco.bukkit.util.plugin.command.completion.StaticCompleter;
+import com.evilco.bukkit.util.plugin.command.metrics.CommandMetrics;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandException;
 import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
 import org.bukkit.util.StringUtil;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Arrays;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 
 /**
  * @package com.evilco.bukkit.util.plugin.command
@@ -27,20 +37,52 @@ import java.util.Arrays;
  */
 public class DynamicCommand extends org.bukkit.command.Command {
 
+	/**
+	 * Provides unique command identifiers.
+	 */
+	protected static final AtomicInteger IDENTIFIERS = new AtomicInteger ();
+
+	/**
+	 * Stores the unique identifier of this command (used as part of cooldown keys).
+	 */
+	protected final int identifier = IDENTIFIERS.incrementAndGet ();
+
 	/**
 	 * Stores all supplied command flags.
 	 */
 	protected String flags;
 
 	/**
-	 * Stores the handler object.
+	 * Stores the compiled flag specification.
+	 */
+	protected volatile CommandFlags flagSpecification;
+
+	/**
+	 * Stores a context per dispatching thread (contexts are reused between invocations).
+	 */
+	protected final ThreadLocal<CommandContext> contextCache = new ThreadLocal<CommandContext> () {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected CommandContext initialValue () {
+			CommandContext context = new CommandContext (DynamicCommand.this.flagSpecification);
+			context.manager = DynamicCommand.this.parentManager;
+
+			return context;
+		}
+	};
+
+	/**
+	 * Stores the handler invoker (or null if this command only routes to subcommands).
 	 */
-	protected Object handlerObject;
+	protected volatile CommandInvoker invoker;
 
 	/**
-	 * Stores the handler method.
+	 * Indicates whether the command is executed outside of the main thread.
 	 */
-	protected Method handlerMethod;
+	protected boolean asynchronous = false;
 
 	/**
 	 * Stores the parent manager.
@@ -52,23 +94,111 @@ public class DynamicCommand extends org.bukkit.command.Command {
 	 */
 	protected String[] permissions = new String[0];
 
+	/**
+	 * Stores the minimum amount of arguments.
+	 */
+	protected int argumentsMin = 0;
+
+	/**
+	 * Stores the maximum amount of arguments (or -1 for no limit).
+	 */
+	protected int argumentsMax = -1;
+
+	/**
+	 * Stores the argument completers by argument position (or null).
+	 */
+	protected ArgumentCompleter[] completers = null;
+
+	/**
+	 * Stores the rate limiter of this command (if any).
+	 */
+	protected RateLimiter rateLimiter = null;
+
+	/**
+	 * Stores the cooldown (in milliseconds).
+	 */
+	protected long cooldown = 0;
+
+	/**
+	 * Stores the metrics of this command.
+	 */
+	protected final CommandMetrics metrics = new CommandMetrics ();
+
+	/**
+	 * Stores the metrics of this command per (lower case) alias.
+	 */
+	protected final ConcurrentMap<String, CommandMetrics> aliasMetrics = new ConcurrentHashMap<String, CommandMetrics> ();
+
+	/**
+	 * Stores the parent command (if this is a subcommand).
+	 */
+	protected DynamicCommand parent = null;
+
+	/**
+	 * Stores the depth within the command tree (root commands are at depth 0).
+	 */
+	protected int depth = 0;
+
+	/**
+	 * Stores all subcommands by their (lower case) aliases (replaced as a whole on updates).
+	 */
+	protected volatile Map<String, DynamicCommand> subcommands = null;
+
+	/**
+	 * Stores all subcommand aliases in sorted order (used for prefix matching).
+	 */
+	protected volatile String[] subcommandLabels = null;
+
 	/**
 	 * @param aliases
 	 * @param flags
 	 * @param description
 	 * @param usage
 	 * @param parentManager
-	 * @param handlerObject
-	 * @param handlerMethod
+	 * @param invoker The handler invoker (or null if the command only routes to subcommands).
 	 */
-	public DynamicCommand (String[] aliases, String flags, String description, String usage, CommandManager parentManager, Object handlerObject, Method handlerMethod) {
+	public DynamicCommand (String[] aliases, String flags, String description, String usage, CommandManager parentManager, CommandInvoker invoker) {
 		super (aliases[0], description, usage, Arrays.asList (aliases));
 
 		// store arguments
 		this.parentManager = parentManager;
-		this.handlerObject = handlerObject;
-		this.handlerMethod = handlerMethod;
+		this.invoker = invoker;
 		this.flags = flags;
+		this.flagSpecification = new CommandFlags (flags);
+	}
+
+	/**
+	 * Acquires a context for the current thread.
+	 * Nested invocations of the same command on one thread receive a fresh context.
+	 * @return
+	 */
+	protected CommandContext acquireContext () {
+		CommandContext context = this.contextCache.get ();
+		CommandFlags specification = this.flagSpecification;
+
+		// context is in use (recursive dispatch)
+		if (context.acquired) {
+			context = new CommandContext (specification);
+			context.manager = this.parentManager;
+		} else if (context.specification != specification) {
+			// flags changed since the context was cached (command has been bound again)
+			context = new CommandContext (specification);
+			context.manager = this.parentManager;
+
+			this.contextCache.set (context);
+		}
+
+		context.acquired = true;
+		return context;
+	}
+
+	/**
+	 * Releases a previously acquired context.
+	 * @param context
+	 */
+	protected void releaseContext (CommandContext context) {
+		context.reset ();
+		context.acquired = false;
 	}
 
 	/**
@@ -80,33 +210,778 @@ public class DynamicCommand extends org.bukkit.command.Command {
 	 */
 	@Override
 	public boolean execute (CommandSender commandSender, String s, String[] strings) {
+		// find subcommand
+		DynamicCommand target = this.resolve (strings, strings.length);
+		String alias = (target == this ? s : strings[target.depth - this.depth - 1]);
+
+		return target.executeHandler (commandSender, alias, s, strings, (target.depth - this.depth));
+	}
+
+	/**
+	 * Executes the handler of this command.
+	 * @param commandSender
+	 * @param alias The alias used to address this command.
+	 * @param s
+	 * @param strings
+	 * @param offset The amount of leading arguments which have been consumed by subcommand labels.
+	 * @return
+	 */
+	protected boolean executeHandler (CommandSender commandSender, String alias, String s, String[] strings, int offset) {
+		// routing only
+		if (this.invoker == null) {
+			commandSender.sendMessage (ChatColor.RED + this.getSubcommandUsage (s));
+			return false;
+		}
+
+		// find metrics
+		CommandMetrics aliasMetrics = this.getAliasMetrics (alias);
+
+		// enforce rate limits (commands which are rejected by their own limit do not drain the global budget)
+		RateLimiter globalRateLimiter = this.parentManager.getRateLimiter ();
+
+		if ((this.rateLimiter != null && !this.rateLimiter.tryAcquire (commandSender)) || (globalRateLimiter != null && !globalRateLimiter.tryAcquire (commandSender))) {
+			commandSender.sendMessage (ChatColor.RED + "You are executing commands too fast. Please slow down.");
+			this.recordRejection (aliasMetrics);
+
+			return true;
+		}
+
+		// verify sender and arity before parsing
+		if (!this.verify (commandSender, strings, offset)) {
+			this.recordRejection (aliasMetrics);
+			return true;
+		}
+
+		// reject senders on cooldown early (the cooldown is only charged once the invocation is accepted)
+		long remaining = this.getRemainingCooldown (commandSender);
+
+		if (remaining > 0) {
+			this.rejectCooldown (commandSender, remaining, aliasMetrics);
+			return true;
+		}
+
+		// hand over to executor
+		if (this.asynchronous) return this.executeAsynchronously (commandSender, s, strings, offset, aliasMetrics);
+
 		// parse arguments
-		CommandContext context = new CommandContext (flags);
-		context.parse (strings);
+		long start = System.nanoTime ();
+		boolean failed = true;
+
+		CommandContext context = this.acquireContext ();
+		context.parse (strings, offset);
 
 		try {
-			return ((Boolean) this.handlerMethod.invoke (this.handlerObject, commandSender, context));
-		} catch (IllegalAccessException ex) {
-			this.parentManager.logger.severe ("Cannot access " + this.handlerObject.getClass ().getName () + " -> " + this.handlerMethod.getName () + ": " + ex.getMessage ());
+			// verify exact arity (quoted flag values may span multiple arguments)
+			if (this.argumentsMax >= 0 && context.getArgumentList ().size () > this.argumentsMax) {
+				this.sendArityMessage (commandSender, "Too many arguments.");
+				this.recordRejection (aliasMetrics);
+
+				failed = false;
+				return true;
+			}
+
+			// enforce cooldown
+			if (!this.acquireCooldown (commandSender, aliasMetrics)) {
+				failed = false;
+				return true;
+			}
+
+			boolean result = this.invoker.invoke (commandSender, s, context);
+			this.record (aliasMetrics, start, false);
+
+			failed = false;
+			return result;
+		} catch (CommandException ex) {
+			throw ex;
+		} catch (Throwable ex) {
+			this.parentManager.logger.log (Level.SEVERE, "Cannot execute " + this.invoker + ": " + ex.getMessage (), ex);
 			this.parentManager.logger.severe ("This is an error in the implementation of the command " + this.getName () + ". Please contact the plugin author and report this issue.");
-		} catch (InvocationTargetException ex) {
-			this.parentManager.logger.severe ("Cannot execute " + this.handlerMethod.getName () + " on object of type " + this.handlerObject.getClass ().getName () + ": " + ex.getMessage ());
-			this.parentManager.logger.severe ("This might be a bug in the plugin utilities. Please report this error to the author of this library.");
+		} finally {
+			if (failed) this.record (aliasMetrics, start, true);
+			this.releaseContext (context);
 		}
 
 		// execution failed
 		return false;
 	}
 
+	/**
+	 * Charges the cooldown of a sender (senders which are still on cooldown are notified).
+	 * @param commandSender
+	 * @param aliasMetrics
+	 * @return True if the invocation may proceed.
+	 */
+	protected boolean acquireCooldown (CommandSender commandSender, CommandMetrics aliasMetrics) {
+		if (this.cooldown <= 0 || !(commandSender instanceof Entity)) return true;
+
+		long remaining = this.parentManager.getCooldowns ().tryAcquire (CooldownTable.getKey (((Entity) commandSender).getUniqueId (), this.identifier), CooldownTable.now (), this.cooldown);
+		if (remaining <= 0) return true;
+
+		this.rejectCooldown (commandSender, remaining, aliasMetrics);
+		return false;
+	}
+
+	/**
+	 * Notifies a sender which is still on cooldown.
+	 * @param commandSender
+	 * @param remaining The remaining cooldown (in milliseconds).
+	 * @param aliasMetrics
+	 */
+	protected void rejectCooldown (CommandSender commandSender, long remaining, CommandMetrics aliasMetrics) {
+		commandSender.sendMessage (ChatColor.RED + "You need to wait " + ((remaining + 999) / 1000) + " second(s) before using this command again.");
+		this.recordRejection (aliasMetrics);
+	}
+
+	/**
+	 * Records an invocation.
+	 * @param aliasMetrics
+	 * @param start The start time (as returned by {@link System#nanoTime()}).
+	 * @param failed
+	 */
+	protected void record (CommandMetrics aliasMetrics, long start, boolean failed) {
+		long duration = (System.nanoTime () - start);
+
+		this.metrics.record (duration, failed);
+		aliasMetrics.record (duration, failed);
+	}
+
+	/**
+	 * Records a rejected execution.
+	 * @param aliasMetrics
+	 */
+	protected void recordRejection (CommandMetrics aliasMetrics) {
+		this.metrics.recordRejection ();
+		aliasMetrics.recordRejection ();
+	}
+
+	/**
+	 * Returns the metrics of an alias.
+	 * Labels which are not an alias (such as abbreviated subcommands) are recorded as the command name.
+	 * @param alias
+	 * @return
+	 */
+	protected CommandMetrics getAliasMetrics (String alias) {
+		CommandMetrics metrics = this.aliasMetrics.get (alias);
+		if (metrics != null) return metrics;
+
+		// strip plugin prefix
+		String name = alias.toLowerCase ();
+		int separator = name.indexOf (':');
+		if (separator != -1) name = name.substring (separator + 1);
+
+		// keep the map bounded by the amount of aliases
+		if (!this.isAlias (name)) name = this.getName ().toLowerCase ();
+
+		// create entry
+		metrics = this.aliasMetrics.get (name);
+		if (metrics != null) return metrics;
+
+		metrics = new CommandMetrics ();
+		CommandMetrics existing = this.aliasMetrics.putIfAbsent (name, metrics);
+
+		return (existing != null ? existing : metrics);
+	}
+
+	/**
+	 * Checks whether the supplied label is the name or an alias of this command.
+	 * @param label
+	 * @return
+	 */
+	protected boolean isAlias (String label) {
+		if (this.getName ().equalsIgnoreCase (label)) return true;
+
+		for (String alias : this.getAliases ()) {
+			if (alias.equalsIgnoreCase (label)) return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Verifies permissions and the amount of arguments (before arguments are parsed).
+	 * Arguments are counted without flags and flag values. Since quoted flag values may span multiple arguments, the
+	 * estimation is an upper bound which is exact unless value flags are used.
+	 * @param commandSender
+	 * @param strings
+	 * @param offset
+	 * @return True if the command may be executed.
+	 */
+	protected boolean verify (CommandSender commandSender, String[] strings, int offset) {
+		// verify permissions
+		if (this.permissions.length > 0 && !this.parentManager.getPermissionCache ().hasPermission (commandSender, this.permissions)) {
+			commandSender.sendMessage (this.getPermissionMessage () != null ? this.getPermissionMessage () : ChatColor.RED + "I'm sorry, but you do not have permission to perform this command. Please contact the server administrators if you believe that this is in error.");
+			return false;
+		}
+
+		// no limits
+		if (this.argumentsMin <= 0 && this.argumentsMax < 0) return true;
+
+		// count arguments
+		int count = (strings.length - offset);
+		boolean exact = true;
+
+		if (count > 0 && !this.flagSpecification.isEmpty () && strings[offset].length () > 1 && strings[offset].charAt (0) == '-') {
+			count--;
+
+			for (int i = 1; i < strings[offset].length (); i++) {
+				if (!this.flagSpecification.isValueFlag (strings[offset].charAt (i))) continue;
+
+				count--;
+				exact = false;
+			}
+		}
+
+		// verify limits
+		if (count < this.argumentsMin) {
+			this.sendArityMessage (commandSender, "Not enough arguments.");
+			return false;
+		}
+
+		if (exact && this.argumentsMax >= 0 && count > this.argumentsMax) {
+			this.sendArityMessage (commandSender, "Too many arguments.");
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Notifies a sender about an invalid amount of arguments.
+	 * @param commandSender
+	 * @param message
+	 */
+	protected void sendArityMessage (CommandSender commandSender, String message) {
+		commandSender.sendMessage (ChatColor.RED + message);
+		if (this.usageMessage != null && !this.usageMessage.isEmpty ()) commandSender.sendMessage (ChatColor.RED + "Usage: " + this.usageMessage);
+	}
+
+	/**
+	 * Resolves the deepest subcommand addressed by the supplied arguments.
+	 * @param strings
+	 * @param limit The amount of arguments which may be consumed.
+	 * @return
+	 */
+	public DynamicCommand resolve (String[] strings, int limit) {
+		DynamicCommand target = this;
+
+		for (int i = 0; i < limit && target.subcommands != null; i++) {
+			DynamicCommand subcommand = target.getSubcommand (strings[i]);
+			if (subcommand == null) break;
+
+			target = subcommand;
+		}
+
+		return target;
+	}
+
+	/**
+	 * Returns a usage message which lists all subcommands.
+	 * @param label
+	 * @return
+	 */
+	protected String getSubcommandUsage (String label) {
+		// custom usage
+		if (this.usageMessage != null && !this.usageMessage.isEmpty ()) return this.usageMessage;
+
+		// build path
+		StringBuilder buffer = new StringBuilder ();
+		DynamicCommand command = this;
+
+		while (command.parent != null) {
+			buffer.insert (0, " " + command.getName ());
+			command = command.parent;
+		}
+
+		buffer.insert (0, "Usage: /" + label);
+		buffer.append (" <");
+
+		// append subcommands
+		if (this.subcommands != null) {
+			boolean first = true;
+
+			for (DynamicCommand subcommand : this.getSubcommands ()) {
+				if (!first) buffer.append ('|');
+				buffer.append (subcommand.getName ());
+
+				first = false;
+			}
+		}
+
+		return buffer.append ('>').toString ();
+	}
+
+	/**
+	 * Completes subcommand labels, flags and arguments (or falls back to the default completion).
+	 * Results are cached per sender.
+	 * @param sender
+	 * @param alias
+	 * @param args
+	 * @return
+	 * @throws IllegalArgumentException
+	 */
+	@Override
+	public List<String> tabComplete (CommandSender sender, String alias, String[] args) throws IllegalArgumentException {
+		// default completion
+		if (args.length == 0) return super.tabComplete (sender, alias, args);
+
+		// cached completion
+		CompletionCache cache = this.parentManager.getCompletionCache ();
+		List<String> completions = cache.get (sender, this, args);
+
+		if (completions == null) {
+			completions = this.complete (sender, alias, args);
+			cache.put (sender, this, args, completions);
+		}
+
+		// callers may modify the result
+		return new ArrayList<String> (completions);
+	}
+
+	/**
+	 * Calculates completions for the last argument.
+	 * @param sender
+	 * @param alias
+	 * @param args
+	 * @return
+	 */
+	protected List<String> complete (CommandSender sender, String alias, String[] args) {
+		// find subcommand
+		DynamicCommand target = this.resolve (args, (args.length - 1));
+		int offset = (target.depth - this.depth);
+
+		String token = args[args.length - 1];
+		List<String> completions = new ArrayList<String> ();
+
+		// subcommands and flags (directly behind the command path)
+		if (offset == (args.length - 1)) {
+			if (target.subcommandLabels != null) StaticCompleter.complete (target.subcommandLabels, target.subcommandLabels, token.toLowerCase (), completions);
+			if (token.startsWith ("-")) target.completeFlags (token, completions);
+		}
+
+		// arguments
+		if (target.completers != null) {
+			int position = target.getArgumentPosition (args, offset);
+			if (position >= 0 && position < target.completers.length && target.completers[position] != null) target.completers[position].complete (sender, token, completions);
+		} else if (completions.isEmpty ()) {
+			List<String> defaultCompletions = super.tabComplete (sender, alias, args);
+			if (defaultCompletions != null) completions.addAll (defaultCompletions);
+		}
+
+		return completions;
+	}
+
+	/**
+	 * Appends all flags which have not yet been used in the supplied flag token.
+	 * @param token
+	 * @param completions
+	 */
+	protected void completeFlags (String token, List<String> completions) {
+		String flags = this.flagSpecification.getValueFlags () + this.flagSpecification.getFlags ();
+
+		for (int i = 0; i < flags.length (); i++) {
+			if (token.indexOf (flags.charAt (i), 1) == -1) completions.add (token + flags.charAt (i));
+		}
+	}
+
+	/**
+	 * Returns the position of the last argument within the argument list (ignoring flags and flag values).
+	 * @param args
+	 * @param offset
+	 * @return The position (or -1 if the last argument is a flag or flag value).
+	 */
+	protected int getArgumentPosition (String[] args, int offset) {
+		int position = (args.length - 1 - offset);
+
+		// skip flags and their values
+		if (position > 0 && !this.flagSpecification.isEmpty () && args[offset].length () > 1 && args[offset].charAt (0) == '-') {
+			position--;
+
+			for (int i = 1; i < args[offset].length (); i++) {
+				if (this.flagSpecification.isValueFlag (args[offset].charAt (i))) position--;
+			}
+		} else if (position == 0 && args[offset].startsWith ("-") && !this.flagSpecification.isEmpty ()) {
+			return -1;
+		}
+
+		return (position < 0 ? -1 : position);
+	}
+
+	/**
+	 * Adds a subcommand.
+	 * @param subcommand
+	 * @throws CommandRegistrationException
+	 */
+	public synchronized void addSubcommand (DynamicCommand subcommand) throws CommandRegistrationException {
+		Map<String, DynamicCommand> subcommands = (this.subcommands != null ? new HashMap<String, DynamicCommand> (this.subcommands) : new HashMap<String, DynamicCommand> ());
+
+		// verify aliases
+		for (String alias : subcommand.getAliases ()) {
+			DynamicCommand existing = subcommands.get (alias.toLowerCase ());
+			if (existing != null && existing != subcommand) throw new CommandRegistrationException ("The subcommand alias \"" + alias + "\" of command " + this.getName () + " is already used by " + existing.getName () + ".");
+		}
+
+		// link
+		subcommand.parent = this;
+		subcommand.depth = (this.depth + 1);
+
+		for (String alias : subcommand.getAliases ()) subcommands.put (alias.toLowerCase (), subcommand);
+
+		// publish
+		this.setSubcommands (subcommands);
+	}
+
+	/**
+	 * Removes a subcommand.
+	 * @param subcommand
+	 */
+	public synchronized void removeSubcommand (DynamicCommand subcommand) {
+		if (this.subcommands == null) return;
+
+		// copy remaining subcommands
+		Map<String, DynamicCommand> subcommands = new HashMap<String, DynamicCommand> ();
+
+		for (Map.Entry<String, DynamicCommand> entry : this.subcommands.entrySet ()) {
+			if (entry.getValue () != subcommand) subcommands.put (entry.getKey (), entry.getValue ());
+		}
+
+		// unlink
+		if (subcommand.parent == this) subcommand.parent = null;
+
+		// publish
+		this.setSubcommands (subcommands.isEmpty () ? null : subcommands);
+	}
+
+	/**
+	 * Replaces the subcommand table and its prefix index.
+	 * @param subcommands
+	 */
+	protected void setSubcommands (Map<String, DynamicCommand> subcommands) {
+		String[] labels = null;
+
+		if (subcommands != null) {
+			labels = subcommands.keySet ().toArray (new String[subcommands.size ()]);
+			Arrays.sort (labels);
+		}
+
+		this.subcommands = subcommands;
+		this.subcommandLabels = labels;
+
+		this.parentManager.registrationGeneration.incrementAndGet ();
+	}
+
+	/**
+	 * Binds a handler to this command (used for commands which have been created implicitly as subcommand parents).
+	 * @param aliases
+	 * @param flags
+	 * @param description
+	 * @param usage
+	 * @param invoker
+	 */
+	public void bind (String[] aliases, String flags, String description, String usage, CommandInvoker invoker) {
+		this.flags = flags;
+		this.flagSpecification = new CommandFlags (flags);
+		this.invoker = invoker;
+
+		this.setAliases (Arrays.asList (aliases));
+		this.setDescription (description);
+		this.setUsage (usage);
+
+		this.parentManager.registrationGeneration.incrementAndGet ();
+	}
+
+	/**
+	 * Removes the handler and all handler settings from this command (the command keeps routing to its subcommands).
+	 * Drops all references to the handler instance.
+	 */
+	public void unbind () {
+		this.invoker = null;
+		this.completers = null;
+		this.rateLimiter = null;
+		this.cooldown = 0;
+		this.asynchronous = false;
+
+		this.setArgumentLimits (0, -1);
+		this.setPermissions (null);
+		this.setPermission (null);
+
+		this.parentManager.registrationGeneration.incrementAndGet ();
+	}
+
+	/**
+	 * Returns the subcommand with the supplied alias (or the only subcommand starting with the supplied alias).
+	 * @param label
+	 * @return
+	 */
+	public DynamicCommand getSubcommand (String label) {
+		Map<String, DynamicCommand> subcommands = this.subcommands;
+		String[] labels = this.subcommandLabels;
+
+		if (subcommands == null || labels == null || label.isEmpty ()) return null;
+
+		// exact match
+		String key = label.toLowerCase ();
+		DynamicCommand match = subcommands.get (key);
+
+		if (match != null) return match;
+
+		// unambiguous prefix
+		int index = -(Arrays.binarySearch (labels, key) + 1);
+
+		for (; index < labels.length && labels[index].startsWith (key); index++) {
+			DynamicCommand candidate = subcommands.get (labels[index]);
+			if (candidate == null) continue;
+
+			// ambiguous prefix
+			if (match != null && match != candidate) return null;
+
+			match = candidate;
+		}
+
+		return match;
+	}
+
+	/**
+	 * Returns the subcommand with exactly the supplied alias.
+	 * @param alias
+	 * @return
+	 */
+	public DynamicCommand getSubcommandExact (String alias) {
+		Map<String, DynamicCommand> subcommands = this.subcommands;
+		return (subcommands != null ? subcommands.get (alias.toLowerCase ()) : null);
+	}
+
+	/**
+	 * Returns all subcommands.
+	 * @return
+	 */
+	public Collection<DynamicCommand> getSubcommands () {
+		Map<String, DynamicCommand> subcommands = this.subcommands;
+
+		if (subcommands == null) return Collections.emptySet ();
+		return new LinkedHashSet<DynamicCommand> (new TreeMap<String, DynamicCommand> (subcommands).values ());
+	}
+
+	/**
+	 * Returns the metrics of this command.
+	 * @return
+	 */
+	public CommandMetrics getMetrics () {
+		return this.metrics;
+	}
+
+	/**
+	 * Returns the metrics of this command per (lower case) alias.
+	 * @return
+	 */
+	public Map<String, CommandMetrics> getMetricsByAlias () {
+		return Collections.unmodifiableMap (this.aliasMetrics);
+	}
+
+	/**
+	 * Returns the path of this command (the names of all parents and this command separated by spaces).
+	 * @return
+	 */
+	public String getPath () {
+		return (this.parent != null ? this.parent.getPath () + " " + this.getName () : this.getName ());
+	}
+
+	/**
+	 * Returns the parent command (if any).
+	 * @return
+	 */
+	public DynamicCommand getParent () {
+		return this.parent;
+	}
+
+	/**
+	 * Checks whether a handler is bound to this command.
+	 * @return
+	 */
+	public boolean hasHandler () {
+		return (this.invoker != null);
+	}
+
+	/**
+	 * Executes the command outside of the main thread.
+	 * @param commandSender
+	 * @param s
+	 * @param strings
+	 * @param offset
+	 * @param aliasMetrics
+	 * @return
+	 */
+	protected boolean executeAsynchronously (final CommandSender commandSender, final String s, String[] strings, int offset, final CommandMetrics aliasMetrics) {
+		// keep handler (may be replaced while the command is pending)
+		CommandInvoker currentInvoker = this.invoker;
+
+		// create lazy handlers on the main thread (handler constructors may access the Bukkit API)
+		if (currentInvoker instanceof LazyCommandInvoker) {
+			try {
+				currentInvoker = ((LazyCommandInvoker) currentInvoker).getDelegate ();
+			} catch (Throwable ex) {
+				this.parentManager.logger.log (Level.SEVERE, "Cannot create handler for " + currentInvoker + ": " + ex.getMessage (), ex);
+				this.parentManager.logger.severe ("This is an error in the implementation of the command " + this.getName () + ". Please contact the plugin author and report this issue.");
+
+				return false;
+			}
+		}
+
+		final CommandInvoker invoker = currentInvoker;
+
+		// parse arguments (asynchronous contexts are never reused)
+		final CommandContext context = new CommandContext (this.flagSpecification);
+		context.manager = this.parentManager;
+		context.asynchronous = true;
+		context.parse (strings, offset);
+
+		// verify exact arity (quoted flag values may span multiple arguments)
+		if (this.argumentsMax >= 0 && context.getArgumentList ().size () > this.argumentsMax) {
+			this.sendArityMessage (commandSender, "Too many arguments.");
+			this.recordRejection (aliasMetrics);
+
+			return true;
+		}
+
+		// convert arguments on the main thread (converters may access the Bukkit API)
+		final Object[] values;
+		long start = System.nanoTime ();
+
+		try {
+			values = (invoker instanceof MethodHandleCommandInvoker ? ((MethodHandleCommandInvoker) invoker).convert (commandSender, context) : null);
+		} catch (CommandException ex) {
+			throw ex;
+		} catch (Throwable ex) {
+			this.record (aliasMetrics, start, true);
+
+			this.parentManager.logger.log (Level.SEVERE, "Cannot execute " + invoker + ": " + ex.getMessage (), ex);
+			this.parentManager.logger.severe ("This is an error in the implementation of the command " + this.getName () + ". Please contact the plugin author and report this issue.");
+
+			return false;
+		}
+
+		if (invoker instanceof MethodHandleCommandInvoker && values == null) {
+			this.recordRejection (aliasMetrics);
+			return true;
+		}
+
+		// enforce cooldown
+		if (!this.acquireCooldown (commandSender, aliasMetrics)) return true;
+
+		try {
+			this.parentManager.getExecutor ().execute (new Runnable () {
+
+				/**
+				 * {@inheritDoc}
+				 */
+				@Override
+				public void run () {
+					long start = System.nanoTime ();
+
+					try {
+						if (values != null)
+							((MethodHandleCommandInvoker) invoker).invoke (commandSender, s, context, values);
+						else
+							invoker.invoke (commandSender, s, context);
+
+						DynamicCommand.this.record (aliasMetrics, start, false);
+					} catch (Throwable ex) {
+						DynamicCommand.this.record (aliasMetrics, start, true);
+
+						DynamicCommand.this.parentManager.logger.log (Level.SEVERE, "Cannot execute " + invoker + ": " + ex.getMessage (), ex);
+						DynamicCommand.this.parentManager.logger.severe ("This is an error in the implementation of the command " + DynamicCommand.this.getName () + ". Please contact the plugin author and report this issue.");
+					}
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			this.recordRejection (aliasMetrics);
+			this.resetCooldown (commandSender);
+
+			commandSender.sendMessage (ChatColor.RED + "The server is too busy to execute this command. Please try again later.");
+			this.parentManager.logger.warning ("Rejected asynchronous execution of command " + this.getName () + ": Too many pending commands.");
+		}
+
+		// command has been handled
+		return true;
+	}
+
+	/**
+	 * Checks whether the command is executed outside of the main thread.
+	 * @return
+	 */
+	public boolean isAsynchronous () {
+		return this.asynchronous;
+	}
+
+	/**
+	 * Defines whether the command is executed outside of the main thread.
+	 * @param asynchronous
+	 */
+	public void setAsynchronous (boolean asynchronous) {
+		this.asynchronous = asynchronous;
+	}
+
+	/**
+	 * Defines the argument completers (by argument position).
+	 * @param completers
+	 */
+	public void setCompleters (ArgumentCompleter[] completers) {
+		this.completers = completers;
+	}
+
+	/**
+	 * Defines the allowed amount of arguments.
+	 * @param argumentsMin
+	 * @param argumentsMax The maximum amount (or -1 for no limit).
+	 */
+	public void setArgumentLimits (int argumentsMin, int argumentsMax) {
+		this.argumentsMin = argumentsMin;
+		this.argumentsMax = argumentsMax;
+	}
+
+	/**
+	 * Returns the remaining cooldown of a sender.
+	 * @param sender
+	 * @return The remaining time in milliseconds (or 0 if the sender may execute this command).
+	 */
+	public long getRemainingCooldown (CommandSender sender) {
+		if (this.cooldown <= 0 || !(sender instanceof Entity)) return 0;
+		return this.parentManager.getCooldowns ().getRemaining (CooldownTable.getKey (((Entity) sender).getUniqueId (), this.identifier), CooldownTable.now ());
+	}
+
+	/**
+	 * Ends the cooldown of a sender.
+	 * @param sender
+	 */
+	public void resetCooldown (CommandSender sender) {
+		if (this.cooldown <= 0 || !(sender instanceof Entity)) return;
+		this.parentManager.getCooldowns ().reset (CooldownTable.getKey (((Entity) sender).getUniqueId (), this.identifier), CooldownTable.now ());
+	}
+
+	/**
+	 * Sets the cooldown of this command.
+	 * @param cooldown The cooldown in milliseconds (or 0 to disable the cooldown).
+	 */
+	public void setCooldown (long cooldown) {
+		this.cooldown = cooldown;
+	}
+
+	/**
+	 * Sets the rate limiter of this command.
+	 * @param rateLimiter The rate limiter (or null to disable rate limiting).
+	 */
+	public void setRateLimiter (RateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
 	/**
 	 * Sets a list of permissions.
 	 * @param permissions
 	 */
 	public void setPermissions (String[] permissions) {
-		this.permissions = permissions;
+		this.permissions = (permissions != null ? permissions : new String[0]);
 
 		// send information to parent
-		if (permissions == null) return;
+		if (this.permissions.length == 0) return;
 
 		// create buffer
 		StringBuilder buffer = new StringBuilder (permissions[0]);
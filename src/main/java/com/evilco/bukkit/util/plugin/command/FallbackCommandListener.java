@@ -37,6 +37,8 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 
+import java.util.Collection;
+
 public class FallbackCommandListener implements Listener {
 
 	/**
@@ -44,6 +46,11 @@ public class FallbackCommandListener implements Listener {
 	 */
 	protected CommandManager manager;
 
+	/**
+	 * Stores all known (lower case) labels in an open addressing hash table (replaced as a whole on updates).
+	 */
+	protected volatile String[] labels = new String[1];
+
 	/**
 	 * @param manager
 	 */
@@ -51,16 +58,87 @@ public class FallbackCommandListener implements Listener {
 		this.manager = manager;
 	}
 
+	/**
+	 * Calculates the (case insensitive) hash of a character sequence.
+	 * @param sequence
+	 * @param start
+	 * @param end
+	 * @return
+	 */
+	protected static int hash (CharSequence sequence, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) hash = ((31 * hash) + Character.toLowerCase (sequence.charAt (i)));
+
+		return (hash ^ (hash >>> 16));
+	}
+
+	/**
+	 * Checks whether a label is known.
+	 * @param message
+	 * @param start
+	 * @param end
+	 * @return
+	 */
+	protected boolean isKnown (String message, int start, int end) {
+		String[] labels = this.labels;
+		int mask = (labels.length - 1);
+		int length = (end - start);
+
+		for (int index = (hash (message, start, end) & mask); labels[index] != null; index = ((index + 1) & mask)) {
+			if (labels[index].length () == length && labels[index].regionMatches (true, 0, message, start, length)) return true;
+		}
+
+		return false;
+	}
+
 	/**
 	 * Handles player commands.
 	 * @param event
 	 */
 	@EventHandler (ignoreCancelled = true)
 	public void onPlayerCommandPreprocess(PlayerCommandPreprocessEvent event) {
+		String message = event.getMessage ();
+
+		// find label (skip leading slash)
+		int start = (message.startsWith ("/") ? 1 : 0);
+		int end = message.indexOf (' ', start);
+		if (end == -1) end = message.length ();
+
+		// ignore commands of other plugins
+		if (end == start || !this.isKnown (message, start, end)) return;
+
 		// dispatch command
-		if (!this.manager.getCommandMap ().dispatch (event.getPlayer (), event.getMessage ())) return;
+		if (!this.manager.getCommandMap ().dispatch (event.getPlayer (), message.substring (start))) return;
 
 		// cancel event (command has been processed)
 		event.setCancelled (true);
 	}
+
+	/**
+	 * Replaces the set of known labels.
+	 * @param labels
+	 */
+	public void setLabels (Collection<String> labels) {
+		// calculate capacity (at most half full)
+		int capacity = 2;
+		while (capacity < (labels.size () * 2)) capacity <<= 1;
+
+		// build table
+		String[] table = new String[capacity];
+
+		for (String label : labels) {
+			label = label.toLowerCase ();
+
+			int index = (hash (label, 0, label.length ()) & (capacity - 1));
+
+			while (table[index] != null) {
+				if (table[index].equals (label)) break;
+				index = ((index + 1) & (capacity - 1));
+			}
+
+			table[index] = label;
+		}
+
+		this.labels = table;
+	}
 }
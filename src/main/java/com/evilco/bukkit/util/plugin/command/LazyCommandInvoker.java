@@ -0,0 +1,99 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command;
+
+import com.evilco.bukkit.util.plugin.command.argument.ArgumentConverter;
+import org.bukkit.command.CommandSender;
+
+import java.lang.reflect.Method;
+
+/**
+ * Invokes a command handler which is instantiated and bound on first dispatch.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class LazyCommandInvoker implements CommandInvoker {
+
+	/**
+	 * Stores the handler factory (shared by all commands of a handler).
+	 */
+	protected final CommandHandlerFactory factory;
+
+	/**
+	 * Stores the handler method.
+	 */
+	protected final Method handlerMethod;
+
+	/**
+	 * Stores the converters for additional parameters.
+	 */
+	protected final ArgumentConverter[] converters;
+
+	/**
+	 * Stores the bound invoker (or null if the handler has not been bound yet).
+	 */
+	protected volatile CommandInvoker delegate = null;
+
+	/**
+	 * @param factory
+	 * @param handlerMethod
+	 * @param converters
+	 * @throws CommandRegistrationException
+	 */
+	public LazyCommandInvoker (CommandHandlerFactory factory, Method handlerMethod, ArgumentConverter[] converters) throws CommandRegistrationException {
+		this.factory = factory;
+		this.handlerMethod = handlerMethod;
+		this.converters = converters;
+
+		// verify return type
+		if (handlerMethod.getReturnType () != boolean.class && handlerMethod.getReturnType () != Boolean.class) throw new CommandRegistrationException ("The command handler " + this + " does not return a boolean.");
+	}
+
+	/**
+	 * Returns the bound invoker (creates the handler on first call).
+	 * @return
+	 * @throws Throwable
+	 */
+	protected CommandInvoker getDelegate () throws Throwable {
+		CommandInvoker delegate = this.delegate;
+		if (delegate != null) return delegate;
+
+		synchronized (this) {
+			if (this.delegate == null) this.delegate = new MethodHandleCommandInvoker (this.factory.get (), this.handlerMethod, this.converters);
+			return this.delegate;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean invoke (CommandSender sender, String label, CommandContext context) throws Throwable {
+		return this.getDelegate ().invoke (sender, label, context);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString () {
+		return this.factory.getType ().getName () + " -> " + this.handlerMethod.getName ();
+	}
+}
@@ -0,0 +1,194 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command;
+
+import com.evilco.bukkit.util.plugin.command.argument.ArgumentConverter;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Invokes a command handler through a method handle which is bound to its handler object once.
+ * Additional handler parameters (behind CommandSender, String and CommandContext) are filled with converted arguments.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class MethodHandleCommandInvoker implements CommandInvoker {
+
+	/**
+	 * Stores the invoker type.
+	 */
+	public static final MethodType INVOKER_TYPE = MethodType.methodType (boolean.class, CommandSender.class, String.class, CommandContext.class);
+
+	/**
+	 * Stores the converters for additional parameters.
+	 */
+	protected final ArgumentConverter[] converters;
+
+	/**
+	 * Stores the bound handle.
+	 */
+	protected final MethodHandle handle;
+
+	/**
+	 * Indicates which additional parameters are primitive (and thus required).
+	 */
+	protected final boolean[] required;
+
+	/**
+	 * Stores the handler method.
+	 */
+	protected final Method handlerMethod;
+
+	/**
+	 * Constructs a new invoker.
+	 * @param handlerObject
+	 * @param handlerMethod
+	 * @throws CommandRegistrationException
+	 */
+	public MethodHandleCommandInvoker (Object handlerObject, Method handlerMethod) throws CommandRegistrationException {
+		this (handlerObject, handlerMethod, new ArgumentConverter[0]);
+	}
+
+	/**
+	 * Constructs a new invoker with converters for additional parameters.
+	 * @param handlerObject
+	 * @param handlerMethod
+	 * @param converters
+	 * @throws CommandRegistrationException
+	 */
+	public MethodHandleCommandInvoker (Object handlerObject, Method handlerMethod, ArgumentConverter[] converters) throws CommandRegistrationException {
+		this.handlerMethod = handlerMethod;
+		this.converters = converters;
+		this.required = new boolean[converters.length];
+
+		// find required parameters
+		Class<?>[] parameterTypes = handlerMethod.getParameterTypes ();
+		for (int i = 0; i < converters.length; i++) this.required[i] = parameterTypes[i + 3].isPrimitive ();
+
+		// verify return type
+		if (handlerMethod.getReturnType () != boolean.class && handlerMethod.getReturnType () != Boolean.class) throw new CommandRegistrationException ("The command handler " + this + " does not return a boolean.");
+
+		try {
+			// make method accessible (handlers may be declared in non-public classes)
+			if (!handlerMethod.isAccessible ()) handlerMethod.setAccessible (true);
+
+			// bind handle
+			MethodHandle handle = MethodHandles.lookup ().unreflect (handlerMethod).bindTo (handlerObject);
+
+			if (converters.length > 0)
+				handle = handle.asType (INVOKER_TYPE.appendParameterTypes (objectTypes (converters.length))).asSpreader (Object[].class, converters.length);
+			else
+				handle = handle.asType (INVOKER_TYPE);
+
+			this.handle = handle;
+		} catch (IllegalAccessException ex) {
+			throw new CommandRegistrationException ("Cannot access command handler " + this + ".", ex);
+		} catch (RuntimeException ex) {
+			throw new CommandRegistrationException ("Cannot bind command handler " + this + ": " + ex.getMessage (), ex);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean invoke (CommandSender sender, String label, CommandContext context) throws Throwable {
+		// simple handlers
+		if (this.converters.length == 0) return ((boolean) this.handle.invokeExact (sender, label, context));
+
+		// convert arguments
+		Object[] values = this.convert (sender, context);
+		if (values == null) return false;
+
+		return ((boolean) this.handle.invokeExact (sender, label, context, values));
+	}
+
+	/**
+	 * Invokes the handler with previously converted arguments.
+	 * @param sender
+	 * @param label
+	 * @param context
+	 * @param values The values returned by {@link #convert(CommandSender, CommandContext)}.
+	 * @return
+	 * @throws Throwable
+	 */
+	public boolean invoke (CommandSender sender, String label, CommandContext context, Object[] values) throws Throwable {
+		if (this.converters.length == 0) return ((boolean) this.handle.invokeExact (sender, label, context));
+		return ((boolean) this.handle.invokeExact (sender, label, context, values));
+	}
+
+	/**
+	 * Converts the additional arguments.
+	 * Converters may access the Bukkit API and thus need to be called on the main thread.
+	 * @param sender
+	 * @param context
+	 * @return The converted values (or null if an argument is missing or invalid).
+	 */
+	public Object[] convert (CommandSender sender, CommandContext context) {
+		List<String> arguments = context.getArgumentList ();
+		Object[] values = new Object[this.converters.length];
+
+		for (int i = 0; i < this.converters.length; i++) {
+			// missing arguments
+			if (i >= arguments.size ()) {
+				if (!this.required[i]) continue;
+
+				sender.sendMessage (ChatColor.RED + "Missing argument #" + (i + 1) + ".");
+				return null;
+			}
+
+			// convert
+			values[i] = this.converters[i].convert (sender, arguments.get (i));
+
+			if (values[i] == ArgumentConverter.INVALID) {
+				sender.sendMessage (ChatColor.RED + this.converters[i].getErrorMessage (arguments.get (i)));
+				return null;
+			}
+		}
+
+		return values;
+	}
+
+	/**
+	 * Returns an array of object types.
+	 * @param length
+	 * @return
+	 */
+	protected static Class<?>[] objectTypes (int length) {
+		Class<?>[] types = new Class<?>[length];
+		for (int i = 0; i < length; i++) types[i] = Object.class;
+
+		return types;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString () {
+		return this.handlerMethod.getDeclaringClass ().getName () + " -> " + this.handlerMethod.getName ();
+	}
+}
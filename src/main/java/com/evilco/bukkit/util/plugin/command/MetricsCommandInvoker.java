@@ -0,0 +1,132 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command;
+
+import com.evilco.bukkit.util.plugin.command.metrics.CommandMetrics;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+
+import java.util.*;
+
+/**
+ * Displays (or resets) the metrics of all commands registered with a manager.
+ * Usage: /<label> [-r] [command path]
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class MetricsCommandInvoker implements CommandInvoker {
+
+	/**
+	 * Defines the maximum amount of listed commands.
+	 */
+	public static final int MAXIMUM_ENTRIES = 10;
+
+	/**
+	 * Stores the parent command manager.
+	 */
+	protected final CommandManager manager;
+
+	/**
+	 * @param manager
+	 */
+	public MetricsCommandInvoker (CommandManager manager) {
+		this.manager = manager;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean invoke (CommandSender sender, String label, CommandContext context) throws Throwable {
+		// filter commands
+		StringBuilder filter = new StringBuilder ();
+
+		for (String argument : context.getArgumentList ()) {
+			if (filter.length () > 0) filter.append (' ');
+			filter.append (argument.toLowerCase ());
+		}
+
+		List<Map.Entry<String, CommandMetrics>> entries = new ArrayList<Map.Entry<String, CommandMetrics>> ();
+
+		for (Map.Entry<String, CommandMetrics> entry : this.manager.getMetrics ().entrySet ()) {
+			if (entry.getKey ().toLowerCase ().startsWith (filter.toString ())) entries.add (entry);
+		}
+
+		if (entries.isEmpty ()) {
+			sender.sendMessage (ChatColor.RED + "No matching commands found.");
+			return true;
+		}
+
+		// reset metrics
+		if (context.hasFlag ('r')) {
+			for (Map.Entry<String, CommandMetrics> entry : entries) {
+				entry.getValue ().reset ();
+
+				DynamicCommand command = this.manager.getCommandByPath (entry.getKey ());
+				if (command != null) for (CommandMetrics aliasMetrics : command.getMetricsByAlias ().values ()) aliasMetrics.reset ();
+			}
+
+			sender.sendMessage (ChatColor.GREEN + "Reset the metrics of " + entries.size () + " command(s).");
+			return true;
+		}
+
+		// sort by time spent
+		Collections.sort (entries, new Comparator<Map.Entry<String, CommandMetrics>> () {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public int compare (Map.Entry<String, CommandMetrics> entry1, Map.Entry<String, CommandMetrics> entry2) {
+				long total1 = entry1.getValue ().getLatency ().getTotal ();
+				long total2 = entry2.getValue ().getLatency ().getTotal ();
+
+				return (total1 < total2 ? 1 : (total1 == total2 ? 0 : -1));
+			}
+		});
+
+		// list commands
+		for (int i = 0; i < entries.size () && i < MAXIMUM_ENTRIES; i++) {
+			Map.Entry<String, CommandMetrics> entry = entries.get (i);
+			sender.sendMessage (ChatColor.GOLD + "/" + entry.getKey () + ChatColor.RESET + ": " + entry.getValue ());
+		}
+
+		if (entries.size () > MAXIMUM_ENTRIES) sender.sendMessage (ChatColor.GRAY + "... and " + (entries.size () - MAXIMUM_ENTRIES) + " more.");
+
+		// list aliases of a single command
+		if (entries.size () == 1) {
+			DynamicCommand command = this.manager.getCommandByPath (entries.get (0).getKey ());
+
+			if (command != null) {
+				for (Map.Entry<String, CommandMetrics> alias : new TreeMap<String, CommandMetrics> (command.getMetricsByAlias ()).entrySet ()) sender.sendMessage (ChatColor.GRAY + "  " + alias.getKey () + ": " + alias.getValue ());
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString () {
+		return this.getClass ().getSimpleName ();
+	}
+}
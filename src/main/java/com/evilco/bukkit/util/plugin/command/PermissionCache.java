@@ -0,0 +1,200 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches permission checks per sender.
+ * Bukkit does not announce permission changes, so results expire after a short time. Permission plugins (or command
+ * handlers which change permissions) may invalidate results explicitly. Results of players are dropped when they quit.
+ * Results are cached per entity (by unique identifier) only, other senders (such as the console or command blocks) do
+ * not have a unique identity and are always checked directly.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class PermissionCache {
+
+	/**
+	 * Defines the default maximum amount of cached senders.
+	 */
+	public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+	/**
+	 * Defines the default time to live (in milliseconds).
+	 */
+	public static final long DEFAULT_TIME_TO_LIVE = 1000;
+
+	/**
+	 * Stores all entries by entity identifier.
+	 */
+	protected final Map<UUID, Entry> entries = new ConcurrentHashMap<UUID, Entry> ();
+
+	/**
+	 * Stores the current generation (all entries of older generations are invalid).
+	 */
+	protected volatile int generation = 0;
+
+	/**
+	 * Stores the maximum amount of cached senders.
+	 */
+	protected final int maximumSize;
+
+	/**
+	 * Stores the time to live (in nanoseconds).
+	 */
+	protected final long timeToLive;
+
+	/**
+	 * Constructs a new cache with the default limits.
+	 */
+	public PermissionCache () {
+		this (DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE);
+	}
+
+	/**
+	 * @param maximumSize
+	 * @param timeToLive The time to live (in milliseconds).
+	 */
+	public PermissionCache (int maximumSize, long timeToLive) {
+		this.maximumSize = maximumSize;
+		this.timeToLive = TimeUnit.MILLISECONDS.toNanos (timeToLive);
+	}
+
+	/**
+	 * Checks whether the sender owns at least one of the supplied permissions.
+	 * Results are cached per permission array (commands pass the same array instance on each call).
+	 * @param sender
+	 * @param permissions
+	 * @return
+	 */
+	public boolean hasPermission (CommandSender sender, String[] permissions) {
+		// senders without identity are never cached
+		if (!(sender instanceof Entity)) return check (sender, permissions);
+
+		UUID key = ((Entity) sender).getUniqueId ();
+		long now = System.nanoTime ();
+		Entry entry = this.entries.get (key);
+
+		// create new entry
+		if (entry == null || entry.generation != this.generation || (now - entry.created) > this.timeToLive) {
+			entry = new Entry (this.generation, now);
+			this.entries.put (key, entry);
+
+			// evict entries
+			if (this.entries.size () > this.maximumSize) this.evict (now);
+		}
+
+		synchronized (entry) {
+			Boolean result = entry.results.get (permissions);
+
+			if (result == null) {
+				result = check (sender, permissions);
+				entry.results.put (permissions, result);
+			}
+
+			return result;
+		}
+	}
+
+	/**
+	 * Checks whether the sender owns at least one of the supplied permissions (without caching).
+	 * @param sender
+	 * @param permissions
+	 * @return
+	 */
+	protected static boolean check (CommandSender sender, String[] permissions) {
+		for (String permission : permissions) {
+			if (sender.hasPermission (permission)) return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Removes all expired entries (or all entries if none of them expired).
+	 * @param now
+	 */
+	protected void evict (long now) {
+		Iterator<Entry> iterator = this.entries.values ().iterator ();
+
+		while (iterator.hasNext ()) {
+			Entry entry = iterator.next ();
+			if (entry.generation != this.generation || (now - entry.created) > this.timeToLive) iterator.remove ();
+		}
+
+		// cache is still full
+		if (this.entries.size () > this.maximumSize) this.entries.clear ();
+	}
+
+	/**
+	 * Drops all results of a sender.
+	 * @param sender
+	 */
+	public void invalidate (CommandSender sender) {
+		if (sender instanceof Entity) this.entries.remove (((Entity) sender).getUniqueId ());
+	}
+
+	/**
+	 * Drops all results.
+	 */
+	public synchronized void invalidateAll () {
+		this.generation++;
+		this.entries.clear ();
+	}
+
+	/**
+	 * Represents the cached results of a sender.
+	 */
+	protected static class Entry {
+
+		/**
+		 * Stores the creation time.
+		 */
+		protected final long created;
+
+		/**
+		 * Stores the cache generation.
+		 */
+		protected final int generation;
+
+		/**
+		 * Stores all results by permission array.
+		 */
+		protected final Map<String[], Boolean> results = new IdentityHashMap<String[], Boolean> ();
+
+		/**
+		 * @param generation
+		 * @param created
+		 */
+		public Entry (int generation, long created) {
+			this.generation = generation;
+			this.created = created;
+		}
+	}
+}
@@ -0,0 +1,197 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the amount of commands per sender with lock-free token buckets.
+ * Each bucket is stored as a single timestamp (the time at which the bucket will be full again) which is updated with
+ * compare-and-set. Buckets are keyed by the unique identifier of the sender (senders which are not entities, such as the
+ * console, are not limited). Full buckets are evicted automatically. If the maximum amount of buckets is reached
+ * anyway, the bucket which is closest to being full is dropped, so flooding senders keep their own (empty) buckets.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class RateLimiter {
+
+	/**
+	 * Defines the default maximum amount of buckets.
+	 */
+	public static final int DEFAULT_MAXIMUM_SIZE = 4096;
+
+	/**
+	 * Defines the amount of acquisitions between two evictions.
+	 */
+	protected static final int EVICTION_INTERVAL = 1024;
+
+	/**
+	 * Stores the amount of nanoseconds per token.
+	 */
+	protected final long interval;
+
+	/**
+	 * Stores the amount of nanoseconds a bucket may be ahead of the current time (the capacity minus one token).
+	 */
+	protected final long tolerance;
+
+	/**
+	 * Stores all buckets by sender.
+	 */
+	protected final ConcurrentMap<UUID, AtomicLong> buckets = new ConcurrentHashMap<UUID, AtomicLong> ();
+
+	/**
+	 * Stores the maximum amount of buckets.
+	 */
+	protected final int maximumSize;
+
+	/**
+	 * Stores the amount of acquisitions since the last eviction.
+	 */
+	protected final AtomicInteger operations = new AtomicInteger ();
+
+	/**
+	 * @param limit The amount of commands per period (and the burst capacity).
+	 * @param period
+	 * @param unit
+	 */
+	public RateLimiter (int limit, long period, TimeUnit unit) {
+		this (limit, period, unit, DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * @param limit The amount of commands per period (and the burst capacity).
+	 * @param period
+	 * @param unit
+	 * @param maximumSize The maximum amount of buckets.
+	 */
+	public RateLimiter (int limit, long period, TimeUnit unit, int maximumSize) {
+		if (limit <= 0 || period <= 0) throw new IllegalArgumentException ("Rate limits need to be positive.");
+
+		this.interval = Math.max (1, (unit.toNanos (period) / limit));
+		this.tolerance = (this.interval * (limit - 1));
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Tries to take a token from a bucket.
+	 * @param bucket
+	 * @param now
+	 * @return
+	 */
+	protected boolean tryAcquire (AtomicLong bucket, long now) {
+		while (true) {
+			long current = bucket.get ();
+			long next = ((current - now) < 0 ? now : current);
+
+			// bucket is empty
+			if ((next - now) > this.tolerance) return false;
+
+			if (bucket.compareAndSet (current, (next + this.interval))) return true;
+		}
+	}
+
+	/**
+	 * Tries to take a token from the bucket of a sender.
+	 * @param sender
+	 * @return False if the sender exceeded its limit.
+	 */
+	public boolean tryAcquire (CommandSender sender) {
+		// only entities are limited
+		if (!(sender instanceof Entity)) return true;
+
+		return this.tryAcquire (((Entity) sender).getUniqueId ());
+	}
+
+	/**
+	 * Tries to take a token from the bucket of a sender.
+	 * @param identifier
+	 * @return False if the sender exceeded its limit.
+	 */
+	public boolean tryAcquire (UUID identifier) {
+		long now = System.nanoTime ();
+
+		// evict idle senders
+		if (this.operations.incrementAndGet () >= EVICTION_INTERVAL) {
+			this.operations.set (0);
+			this.evict (now);
+		}
+
+		// find bucket
+		AtomicLong bucket = this.buckets.get (identifier);
+
+		if (bucket == null) {
+			// make room
+			if (this.buckets.size () >= this.maximumSize) {
+				this.evict (now);
+				if (this.buckets.size () >= this.maximumSize) this.evictFullest ();
+			}
+
+			AtomicLong created = new AtomicLong (now);
+			bucket = this.buckets.putIfAbsent (identifier, created);
+			if (bucket == null) bucket = created;
+		}
+
+		return this.tryAcquire (bucket, now);
+	}
+
+	/**
+	 * Removes all full buckets.
+	 * @param now
+	 */
+	protected void evict (long now) {
+		Iterator<AtomicLong> iterator = this.buckets.values ().iterator ();
+
+		while (iterator.hasNext ()) {
+			if ((iterator.next ().get () - now) <= 0) iterator.remove ();
+		}
+	}
+
+	/**
+	 * Removes the bucket which is closest to being full.
+	 */
+	protected void evictFullest () {
+		Map.Entry<UUID, AtomicLong> fullest = null;
+
+		for (Map.Entry<UUID, AtomicLong> entry : this.buckets.entrySet ()) {
+			if (fullest == null || (entry.getValue ().get () - fullest.getValue ().get ()) < 0) fullest = entry;
+		}
+
+		if (fullest != null) this.buckets.remove (fullest.getKey (), fullest.getValue ());
+	}
+
+	/**
+	 * Returns the amount of buckets.
+	 * @return
+	 */
+	public int size () {
+		return this.buckets.size ();
+	}
+}
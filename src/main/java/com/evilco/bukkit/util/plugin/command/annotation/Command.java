@@ -35,17 +35,39 @@ public @interface Command {
 	String[] aliases();
 
 	/**
-	 * Stores the maximum amount of arguments.
+	 * Stores the maximum amount of arguments (flags and flag values are not counted, -1 disables the limit).
 	 * @return
 	 */
-	int argumentsMax() default 0;
+	int argumentsMax() default -1;
 
 	/**
-	 * Stores the minimum amount of arguments.
+	 * Stores the minimum amount of arguments (flags and flag values are not counted).
 	 * @return
 	 */
 	int argumentsMin() default 0;
 
+	/**
+	 * Indicates whether the command is executed outside of the main thread.
+	 * Asynchronous handlers may not access the Bukkit API directly and should use
+	 * {@link com.evilco.bukkit.util.plugin.command.CommandContext#runSynchronously(Runnable)} instead.
+	 * @return
+	 */
+	boolean async() default false;
+
+	/**
+	 * Stores a completer declaration per argument position.
+	 * Declarations are either "@name" (a completer registered with the command manager, e.g. "@players" or
+	 * "@worlds"), "value1|value2|..." (fixed values) or "" (no completion).
+	 * @return
+	 */
+	String[] completions() default { };
+
+	/**
+	 * Stores the time (in milliseconds) a single sender needs to wait between two executions (0 disables the cooldown).
+	 * @return
+	 */
+	long cooldown() default 0;
+
 	/**
 	 * Stores a description.
 	 * @return
@@ -64,12 +86,31 @@ public @interface Command {
 	 */
 	String help() default "";
 
+	/**
+	 * Stores the path of parent commands (e.g. {"region", "flag"} registers this command as /region flag &lt;alias&gt;).
+	 * Parent commands which have not been declared are created implicitly.
+	 * @return
+	 */
+	String[] parent() default { };
+
 	/**
 	 * Stores a list of permissions.
 	 * @return
 	 */
 	String[] permissions() default { };
 
+	/**
+	 * Stores the amount of executions a single sender may issue per rate limit period (0 disables the limit).
+	 * @return
+	 */
+	int rateLimit() default 0;
+
+	/**
+	 * Stores the rate limit period (in milliseconds).
+	 * @return
+	 */
+	long rateLimitPeriod() default 1000;
+
 	/**
 	 * Stores the command usage.
 	 * @return
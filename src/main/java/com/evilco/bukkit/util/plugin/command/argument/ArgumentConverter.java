@@ -0,0 +1,51 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command.argument;
+
+import org.bukkit.command.CommandSender;
+
+/**
+ * Converts command arguments into typed handler parameters.
+ * Converters signal invalid input by returning {@link #INVALID} instead of throwing exceptions.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public interface ArgumentConverter {
+
+	/**
+	 * Indicates an invalid argument.
+	 */
+	public static final Object INVALID = new Object ();
+
+	/**
+	 * Converts an argument.
+	 * @param sender
+	 * @param argument
+	 * @return The converted value (or {@link #INVALID}).
+	 */
+	public Object convert (CommandSender sender, String argument);
+
+	/**
+	 * Returns the message which is sent to senders who supplied an invalid argument.
+	 * @param argument
+	 * @return
+	 */
+	public String getErrorMessage (String argument);
+}
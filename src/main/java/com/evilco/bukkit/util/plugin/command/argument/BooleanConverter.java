@@ -0,0 +1,49 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command.argument;
+
+import org.bukkit.command.CommandSender;
+
+/**
+ * Converts boolean arguments (true/false, yes/no, on/off, 1/0).
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class BooleanConverter implements ArgumentConverter {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object convert (CommandSender sender, String argument) {
+		if (argument.equalsIgnoreCase ("true") || argument.equalsIgnoreCase ("yes") || argument.equalsIgnoreCase ("on") || argument.equals ("1")) return Boolean.TRUE;
+		if (argument.equalsIgnoreCase ("false") || argument.equalsIgnoreCase ("no") || argument.equalsIgnoreCase ("off") || argument.equals ("0")) return Boolean.FALSE;
+
+		return INVALID;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getErrorMessage (String argument) {
+		return "\"" + argument + "\" is not a valid boolean (use true or false).";
+	}
+}
@@ -0,0 +1,149 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command.argument;
+
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores argument converters by their target types.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class ConverterRegistry {
+
+	/**
+	 * Stores all registered converters.
+	 */
+	protected final Map<Class<?>, ArgumentConverter> converters = new ConcurrentHashMap<Class<?>, ArgumentConverter> ();
+
+	/**
+	 * Constructs a new registry with converters for strings, numbers, booleans, players and worlds.
+	 */
+	public ConverterRegistry () {
+		this.register (String.class, new StringConverter ());
+		this.register (Boolean.class, new BooleanConverter ());
+		this.register (Player.class, new PlayerConverter ());
+		this.register (World.class, new WorldConverter ());
+
+		for (Class<?> type : new Class<?>[] { Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class }) this.register (type, new NumberConverter (type));
+	}
+
+	/**
+	 * Returns the boxed representation of a primitive type.
+	 * @param type
+	 * @return
+	 */
+	public static Class<?> box (Class<?> type) {
+		if (!type.isPrimitive ()) return type;
+
+		if (type == boolean.class) return Boolean.class;
+		if (type == byte.class) return Byte.class;
+		if (type == short.class) return Short.class;
+		if (type == int.class) return Integer.class;
+		if (type == long.class) return Long.class;
+		if (type == float.class) return Float.class;
+		if (type == double.class) return Double.class;
+		if (type == char.class) return Character.class;
+		return Void.class;
+	}
+
+	/**
+	 * Returns the converter for a type.
+	 * Converters for unknown types are resolved on first use (they may be registered after their commands).
+	 * @param type
+	 * @return
+	 */
+	@SuppressWarnings ("unchecked")
+	public ArgumentConverter get (Class<?> type) {
+		type = box (type);
+
+		// registered converter
+		ArgumentConverter converter = this.converters.get (type);
+		if (converter != null) return converter;
+
+		// enums (not cached since enums are usually declared by handlers which may be unloaded)
+		if (type.isEnum ()) return new EnumConverter ((Class<? extends Enum<?>>) type);
+
+		return new DeferredConverter (type);
+	}
+
+	/**
+	 * Registers a converter.
+	 * @param type
+	 * @param converter
+	 */
+	public void register (Class<?> type, ArgumentConverter converter) {
+		this.converters.put (box (type), converter);
+	}
+
+	/**
+	 * Resolves a converter on first use.
+	 */
+	protected class DeferredConverter implements ArgumentConverter {
+
+		/**
+		 * Stores the resolved converter.
+		 */
+		protected volatile ArgumentConverter converter = null;
+
+		/**
+		 * Stores the target type.
+		 */
+		protected final Class<?> type;
+
+		/**
+		 * @param type
+		 */
+		public DeferredConverter (Class<?> type) {
+			this.type = type;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object convert (CommandSender sender, String argument) {
+			ArgumentConverter converter = this.converter;
+
+			// resolve converter
+			if (converter == null) {
+				converter = ConverterRegistry.this.converters.get (this.type);
+				if (converter == null) throw new IllegalStateException ("No argument converter has been registered for type " + this.type.getName () + ".");
+
+				this.converter = converter;
+			}
+
+			return converter.convert (sender, argument);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String getErrorMessage (String argument) {
+			return (this.converter != null ? this.converter.getErrorMessage (argument) : "\"" + argument + "\" is not valid.");
+		}
+	}
+}
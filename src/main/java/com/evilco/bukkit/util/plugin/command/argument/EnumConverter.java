@@ -0,0 +1,69 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command.argument;
+
+import org.bukkit.command.CommandSender;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts enum constants (ignoring case).
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class EnumConverter implements ArgumentConverter {
+
+	/**
+	 * Stores all constants by their lower case names.
+	 */
+	protected final Map<String, Object> constants = new HashMap<String, Object> ();
+
+	/**
+	 * Stores the enum type.
+	 */
+	protected final Class<?> type;
+
+	/**
+	 * @param type
+	 */
+	public EnumConverter (Class<? extends Enum<?>> type) {
+		this.type = type;
+
+		for (Enum<?> constant : type.getEnumConstants ()) this.constants.put (constant.name ().toLowerCase (), constant);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object convert (CommandSender sender, String argument) {
+		Object constant = this.constants.get (argument.toLowerCase ());
+		return (constant != null ? constant : INVALID);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getErrorMessage (String argument) {
+		return "\"" + argument + "\" is not a valid " + this.type.getSimpleName () + ".";
+	}
+}
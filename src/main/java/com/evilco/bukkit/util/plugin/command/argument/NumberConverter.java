@@ -0,0 +1,158 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command.argument;
+
+import org.bukkit.command.CommandSender;
+
+/**
+ * Converts numeric arguments without relying on exceptions for validation.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class NumberConverter implements ArgumentConverter {
+
+	/**
+	 * Stores the target type (boxed).
+	 */
+	protected final Class<?> type;
+
+	/**
+	 * @param type A primitive or boxed number type.
+	 */
+	public NumberConverter (Class<?> type) {
+		this.type = type;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object convert (CommandSender sender, String argument) {
+		if (this.type == Integer.class) return parseInteger (argument, Integer.MIN_VALUE, Integer.MAX_VALUE, this.type);
+		if (this.type == Long.class) return parseInteger (argument, Long.MIN_VALUE, Long.MAX_VALUE, this.type);
+		if (this.type == Short.class) return parseInteger (argument, Short.MIN_VALUE, Short.MAX_VALUE, this.type);
+		if (this.type == Byte.class) return parseInteger (argument, Byte.MIN_VALUE, Byte.MAX_VALUE, this.type);
+
+		// floating point values
+		if (!isDecimal (argument)) return INVALID;
+
+		double value = Double.parseDouble (argument);
+		return (this.type == Float.class ? ((Object) ((float) value)) : ((Object) value));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getErrorMessage (String argument) {
+		return "\"" + argument + "\" is not a valid number.";
+	}
+
+	/**
+	 * Parses an integer value.
+	 * @param value
+	 * @param minimum
+	 * @param maximum
+	 * @param type
+	 * @return The boxed value (or {@link #INVALID}).
+	 */
+	protected static Object parseInteger (String value, long minimum, long maximum, Class<?> type) {
+		int length = value.length ();
+		if (length == 0) return INVALID;
+
+		// sign
+		int i = 0;
+		boolean negative = (value.charAt (0) == '-');
+
+		if (negative || value.charAt (0) == '+') {
+			if (length == 1) return INVALID;
+			i++;
+		}
+
+		// digits
+		long result = 0;
+
+		for (; i < length; i++) {
+			int digit = (value.charAt (i) - '0');
+
+			if (digit < 0 || digit > 9) return INVALID;
+			if (result > ((Long.MAX_VALUE - digit) / 10)) return INVALID;
+
+			result = ((result * 10) + digit);
+		}
+
+		if (negative) result = -result;
+
+		// verify range
+		if (result < minimum || result > maximum) return INVALID;
+
+		// box
+		if (type == Integer.class) return ((int) result);
+		if (type == Short.class) return ((short) result);
+		if (type == Byte.class) return ((byte) result);
+		return result;
+	}
+
+	/**
+	 * Checks whether a character is an ASCII digit (other digits are rejected by the number parsers).
+	 * @param c
+	 * @return
+	 */
+	protected static boolean isDigit (char c) {
+		return (c >= '0' && c <= '9');
+	}
+
+	/**
+	 * Checks whether a value is a plain decimal number ([+-]digits[.digits][e[+-]digits]).
+	 * @param value
+	 * @return
+	 */
+	protected static boolean isDecimal (String value) {
+		int length = value.length ();
+		int i = 0;
+
+		// sign
+		if (i < length && (value.charAt (i) == '-' || value.charAt (i) == '+')) i++;
+
+		// mantissa
+		int digits = 0;
+
+		for (; i < length && isDigit (value.charAt (i)); i++) digits++;
+
+		if (i < length && value.charAt (i) == '.') {
+			for (i++; i < length && isDigit (value.charAt (i)); i++) digits++;
+		}
+
+		if (digits == 0) return false;
+
+		// exponent
+		if (i < length && (value.charAt (i) == 'e' || value.charAt (i) == 'E')) {
+			i++;
+			if (i < length && (value.charAt (i) == '-' || value.charAt (i) == '+')) i++;
+
+			int exponentDigits = 0;
+			for (; i < length && isDigit (value.charAt (i)); i++) exponentDigits++;
+
+			if (exponentDigits == 0) return false;
+		}
+
+		return (i == length);
+	}
+}
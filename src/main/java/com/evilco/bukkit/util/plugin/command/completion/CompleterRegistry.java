@@ -0,0 +1,108 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command.completion;
+
+import org.bukkit.command.CommandSender;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores named argument completers.
+ * Completer declarations are written as "@name" (registered completer) or "value1|value2|..." (fixed values).
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class CompleterRegistry {
+
+	/**
+	 * Stores all registered completers.
+	 */
+	protected final Map<String, ArgumentCompleter> completers = new ConcurrentHashMap<String, ArgumentCompleter> ();
+
+	/**
+	 * Constructs a new registry with the default completers (@players and @worlds).
+	 */
+	public CompleterRegistry () {
+		this.register ("players", new PlayerCompleter ());
+		this.register ("worlds", new WorldCompleter ());
+	}
+
+	/**
+	 * Compiles a completer declaration.
+	 * @param declaration
+	 * @return The completer (or null if the declaration is empty).
+	 */
+	public ArgumentCompleter compile (String declaration) {
+		if (declaration.isEmpty ()) return null;
+
+		// named completer (resolved on use since completers may be registered after their commands)
+		if (declaration.charAt (0) == '@') return new ReferenceCompleter (declaration.substring (1));
+
+		// fixed values
+		return new StaticCompleter (declaration.split ("\\|"));
+	}
+
+	/**
+	 * Returns a registered completer.
+	 * @param name
+	 * @return
+	 */
+	public ArgumentCompleter get (String name) {
+		return this.completers.get (name.toLowerCase ());
+	}
+
+	/**
+	 * Registers a completer.
+	 * @param name
+	 * @param completer
+	 */
+	public void register (String name, ArgumentCompleter completer) {
+		this.completers.put (name.toLowerCase (), completer);
+	}
+
+	/**
+	 * Resolves a named completer on use.
+	 */
+	protected class ReferenceCompleter implements ArgumentCompleter {
+
+		/**
+		 * Stores the completer name.
+		 */
+		protected final String name;
+
+		/**
+		 * @param name
+		 */
+		public ReferenceCompleter (String name) {
+			this.name = name;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void complete (CommandSender sender, String prefix, List<String> completions) {
+			ArgumentCompleter completer = CompleterRegistry.this.get (this.name);
+			if (completer != null) completer.complete (sender, prefix, completions);
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command.completion;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Entity;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the last completion result per sender.
+ * Clients send the complete command line on every completion request, so repeated requests are served without
+ * recalculating their results. Entries expire after a fixed time and are evicted once the cache grows too large.
+ * Results are cached per entity (by unique identifier) only, other senders (such as the console or command blocks) do
+ * not have a unique identity and are never served from the cache.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class CompletionCache {
+
+	/**
+	 * Defines the default maximum amount of cached senders.
+	 */
+	public static final int DEFAULT_MAXIMUM_SIZE = 512;
+
+	/**
+	 * Defines the default time to live (in milliseconds).
+	 */
+	public static final long DEFAULT_TIME_TO_LIVE = 2000;
+
+	/**
+	 * Stores all entries by entity identifier.
+	 */
+	protected final Map<UUID, Entry> entries = new ConcurrentHashMap<UUID, Entry> ();
+
+	/**
+	 * Stores the maximum amount of cached senders.
+	 */
+	protected final int maximumSize;
+
+	/**
+	 * Stores the time to live (in nanoseconds).
+	 */
+	protected final long timeToLive;
+
+	/**
+	 * Constructs a new cache with the default limits.
+	 */
+	public CompletionCache () {
+		this (DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE);
+	}
+
+	/**
+	 * @param maximumSize
+	 * @param timeToLive The time to live (in milliseconds).
+	 */
+	public CompletionCache (int maximumSize, long timeToLive) {
+		this.maximumSize = maximumSize;
+		this.timeToLive = TimeUnit.MILLISECONDS.toNanos (timeToLive);
+	}
+
+	/**
+	 * Returns a cached result (or null).
+	 * @param sender
+	 * @param command
+	 * @param arguments
+	 * @return
+	 */
+	public List<String> get (CommandSender sender, Object command, String[] arguments) {
+		if (!(sender instanceof Entity)) return null;
+		Entry entry = this.entries.get (((Entity) sender).getUniqueId ());
+
+		// verify entry
+		if (entry == null || entry.command != command || (System.nanoTime () - entry.created) > this.timeToLive || !Arrays.equals (entry.arguments, arguments)) return null;
+
+		return entry.completions;
+	}
+
+	/**
+	 * Stores a result.
+	 * @param sender
+	 * @param command
+	 * @param arguments
+	 * @param completions
+	 */
+	public void put (CommandSender sender, Object command, String[] arguments, List<String> completions) {
+		if (!(sender instanceof Entity)) return;
+		this.entries.put (((Entity) sender).getUniqueId (), new Entry (command, arguments, completions, System.nanoTime ()));
+
+		// evict entries
+		if (this.entries.size () > this.maximumSize) this.evict ();
+	}
+
+	/**
+	 * Removes all expired entries (or all entries if none of them expired).
+	 */
+	public void evict () {
+		long now = System.nanoTime ();
+		Iterator<Entry> iterator = this.entries.values ().iterator ();
+
+		while (iterator.hasNext ()) {
+			if ((now - iterator.next ().created) > this.timeToLive) iterator.remove ();
+		}
+
+		// cache is still full
+		if (this.entries.size () > this.maximumSize) this.entries.clear ();
+	}
+
+	/**
+	 * Removes the entry of a sender.
+	 * @param sender
+	 */
+	public void invalidate (CommandSender sender) {
+		if (sender instanceof Entity) this.entries.remove (((Entity) sender).getUniqueId ());
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public void invalidateAll () {
+		this.entries.clear ();
+	}
+
+	/**
+	 * Represents a cached result.
+	 */
+	protected static class Entry {
+
+		/**
+		 * Stores the completed command.
+		 */
+		protected final Object command;
+
+		/**
+		 * Stores the completed arguments.
+		 */
+		protected final String[] arguments;
+
+		/**
+		 * Stores the completions.
+		 */
+		protected final List<String> completions;
+
+		/**
+		 * Stores the creation time.
+		 */
+		protected final long created;
+
+		/**
+		 * @param command
+		 * @param arguments
+		 * @param completions
+		 * @param created
+		 */
+		public Entry (Object command, String[] arguments, List<String> completions, long created) {
+			this.command = command;
+			this.arguments = arguments;
+			this.completions = completions;
+			this.created = created;
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command.completion;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.util.StringUtil;
+
+import java.util.List;
+
+/**
+ * Completes the names of online players (which are visible to the sender).
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class PlayerCompleter implements ArgumentCompleter {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void complete (CommandSender sender, String prefix, List<String> completions) {
+		Player senderPlayer = (sender instanceof Player ? ((Player) sender) : null);
+
+		for (Player player : sender.getServer ().getOnlinePlayers ()) {
+			if ((senderPlayer == null || senderPlayer.canSee (player)) && StringUtil.startsWithIgnoreCase (player.getName (), prefix)) completions.add (player.getName ());
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command.completion;
+
+import org.bukkit.command.CommandSender;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Completes arguments from a fixed set of values using a sorted prefix index.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class StaticCompleter implements ArgumentCompleter {
+
+	/**
+	 * Stores all lower case keys (sorted).
+	 */
+	protected final String[] keys;
+
+	/**
+	 * Stores all values (in the order of their keys).
+	 */
+	protected final String[] values;
+
+	/**
+	 * @param values
+	 */
+	public StaticCompleter (String... values) {
+		this (Arrays.asList (values));
+	}
+
+	/**
+	 * @param values
+	 */
+	public StaticCompleter (Collection<String> values) {
+		// sort values by key
+		String[] sorted = values.toArray (new String[values.size ()]);
+		Arrays.sort (sorted, String.CASE_INSENSITIVE_ORDER);
+
+		// build index
+		this.keys = new String[sorted.length];
+		this.values = sorted;
+
+		for (int i = 0; i < sorted.length; i++) this.keys[i] = sorted[i].toLowerCase ();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void complete (CommandSender sender, String prefix, List<String> completions) {
+		complete (this.keys, this.values, prefix.toLowerCase (), completions);
+	}
+
+	/**
+	 * Appends all values whose keys start with the supplied (lower case) prefix.
+	 * @param keys
+	 * @param values
+	 * @param prefix
+	 * @param completions
+	 */
+	public static void complete (String[] keys, String[] values, String prefix, List<String> completions) {
+		// find first match
+		int index = Arrays.binarySearch (keys, prefix);
+		if (index < 0) index = -(index + 1);
+
+		for (; index < keys.length && keys[index].startsWith (prefix); index++) {
+			completions.add (values[index]);
+		}
+	}
+}
@@ -0,0 +1,157 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records invocation counts, error counts and latencies of a command.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class CommandMetrics implements CommandMetricsMXBean {
+
+	/**
+	 * Defines the amount of nanoseconds per millisecond.
+	 */
+	protected static final double NANOSECONDS_PER_MILLISECOND = 1000000d;
+
+	/**
+	 * Stores the amount of invocations which failed with an exception.
+	 */
+	protected final AtomicLong errors = new AtomicLong ();
+
+	/**
+	 * Stores the amount of rejected executions.
+	 */
+	protected final AtomicLong rejections = new AtomicLong ();
+
+	/**
+	 * Stores the latency distribution (in nanoseconds).
+	 */
+	protected final LatencyHistogram latency = new LatencyHistogram ();
+
+	/**
+	 * Records an invocation.
+	 * @param nanoseconds
+	 * @param failed
+	 */
+	public void record (long nanoseconds, boolean failed) {
+		this.latency.record (nanoseconds);
+		if (failed) this.errors.incrementAndGet ();
+	}
+
+	/**
+	 * Records a rejected execution (missing permissions, invalid arguments or a busy executor).
+	 */
+	public void recordRejection () {
+		this.rejections.incrementAndGet ();
+	}
+
+	/**
+	 * Returns the latency distribution (in nanoseconds).
+	 * @return
+	 */
+	public LatencyHistogram getLatency () {
+		return this.latency;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getInvocations () {
+		return this.latency.getCount ();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getErrors () {
+		return this.errors.get ();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getRejections () {
+		return this.rejections.get ();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getMeanLatency () {
+		return (this.latency.getMean () / NANOSECONDS_PER_MILLISECOND);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getMedianLatency () {
+		return (this.latency.getPercentile (50) / NANOSECONDS_PER_MILLISECOND);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getLatency99thPercentile () {
+		return (this.latency.getPercentile (99) / NANOSECONDS_PER_MILLISECOND);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getMaximumLatency () {
+		return (this.latency.getMaximum () / NANOSECONDS_PER_MILLISECOND);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getTotalTime () {
+		return (this.latency.getTotal () / NANOSECONDS_PER_MILLISECOND);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void reset () {
+		this.latency.reset ();
+		this.errors.set (0);
+		this.rejections.set (0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString () {
+		return String.format ("%d calls, %d errors, %d rejected, mean %.2f ms, p50 %.2f ms, p99 %.2f ms, max %.2f ms, total %.1f ms", this.getInvocations (), this.getErrors (), this.getRejections (), this.getMeanLatency (), this.getMedianLatency (), this.getLatency99thPercentile (), this.getMaximumLatency (), this.getTotalTime ());
+	}
+}
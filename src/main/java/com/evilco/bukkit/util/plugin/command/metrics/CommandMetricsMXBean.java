@@ -0,0 +1,82 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command.metrics;
+
+/**
+ * Exports command metrics via JMX.
+ * All latencies are reported in milliseconds.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public interface CommandMetricsMXBean {
+
+	/**
+	 * Returns the amount of executed invocations.
+	 * @return
+	 */
+	public long getInvocations ();
+
+	/**
+	 * Returns the amount of invocations which failed with an exception.
+	 * @return
+	 */
+	public long getErrors ();
+
+	/**
+	 * Returns the amount of executions which have been rejected before invocation.
+	 * @return
+	 */
+	public long getRejections ();
+
+	/**
+	 * Returns the average latency.
+	 * @return
+	 */
+	public double getMeanLatency ();
+
+	/**
+	 * Returns the median latency.
+	 * @return
+	 */
+	public double getMedianLatency ();
+
+	/**
+	 * Returns the 99th percentile latency.
+	 * @return
+	 */
+	public double getLatency99thPercentile ();
+
+	/**
+	 * Returns the highest latency.
+	 * @return
+	 */
+	public double getMaximumLatency ();
+
+	/**
+	 * Returns the time spent in the command.
+	 * @return
+	 */
+	public double getTotalTime ();
+
+	/**
+	 * Resets all counters.
+	 */
+	public void reset ();
+}
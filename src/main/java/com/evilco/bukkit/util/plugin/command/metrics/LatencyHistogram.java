@@ -0,0 +1,191 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.command.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records a distribution of latencies (in nanoseconds) without locking.
+ * Values are stored in log-linear buckets (a power of two split into 16 sub buckets) which limits the relative error
+ * of reported percentiles to roughly 6%. Values above ~36 minutes are stored in the last bucket.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class LatencyHistogram {
+
+	/**
+	 * Defines the amount of sub buckets per power of two (as bits).
+	 */
+	protected static final int SUB_BUCKET_BITS = 4;
+
+	/**
+	 * Defines the amount of sub buckets per power of two.
+	 */
+	protected static final int SUB_BUCKET_COUNT = (1 << SUB_BUCKET_BITS);
+
+	/**
+	 * Defines the highest tracked magnitude (2^40 ns).
+	 */
+	protected static final int MAXIMUM_MAGNITUDE = 40;
+
+	/**
+	 * Defines the amount of buckets.
+	 */
+	protected static final int BUCKET_COUNT = ((MAXIMUM_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT);
+
+	/**
+	 * Stores the amount of values per bucket.
+	 */
+	protected final AtomicLongArray buckets = new AtomicLongArray (BUCKET_COUNT);
+
+	/**
+	 * Stores the amount of recorded values.
+	 */
+	protected final AtomicLong count = new AtomicLong ();
+
+	/**
+	 * Stores the sum of all recorded values.
+	 */
+	protected final AtomicLong total = new AtomicLong ();
+
+	/**
+	 * Stores the highest recorded value.
+	 */
+	protected final AtomicLong maximum = new AtomicLong ();
+
+	/**
+	 * Returns the bucket index of a value.
+	 * @param value
+	 * @return
+	 */
+	protected static int getBucket (long value) {
+		// linear range
+		if (value < SUB_BUCKET_COUNT) return (value < 0 ? 0 : ((int) value));
+
+		// logarithmic range
+		int magnitude = (63 - Long.numberOfLeadingZeros (value));
+		if (magnitude > MAXIMUM_MAGNITUDE) return (BUCKET_COUNT - 1);
+
+		return (((magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT) + ((int) ((value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1))));
+	}
+
+	/**
+	 * Returns the highest value stored in a bucket.
+	 * @param bucket
+	 * @return
+	 */
+	protected static long getBucketLimit (int bucket) {
+		// linear range
+		if (bucket < SUB_BUCKET_COUNT) return bucket;
+
+		// logarithmic range
+		int shift = ((bucket / SUB_BUCKET_COUNT) - 1);
+		long lowest = (((long) (SUB_BUCKET_COUNT + (bucket % SUB_BUCKET_COUNT))) << shift);
+
+		return (lowest + (1L << shift) - 1);
+	}
+
+	/**
+	 * Records a value.
+	 * @param value
+	 */
+	public void record (long value) {
+		this.buckets.incrementAndGet (getBucket (value));
+		this.count.incrementAndGet ();
+		this.total.addAndGet (value);
+
+		// update maximum
+		long maximum;
+
+		do {
+			maximum = this.maximum.get ();
+			if (value <= maximum) break;
+		} while (!this.maximum.compareAndSet (maximum, value));
+	}
+
+	/**
+	 * Returns the amount of recorded values.
+	 * @return
+	 */
+	public long getCount () {
+		return this.count.get ();
+	}
+
+	/**
+	 * Returns the highest recorded value.
+	 * @return
+	 */
+	public long getMaximum () {
+		return this.maximum.get ();
+	}
+
+	/**
+	 * Returns the average value.
+	 * @return
+	 */
+	public double getMean () {
+		long count = this.count.get ();
+		return (count == 0 ? 0 : (((double) this.total.get ()) / count));
+	}
+
+	/**
+	 * Returns the sum of all recorded values.
+	 * @return
+	 */
+	public long getTotal () {
+		return this.total.get ();
+	}
+
+	/**
+	 * Returns the (upper bound of the) value at the supplied percentile.
+	 * @param percentile A percentile between 0 and 100.
+	 * @return
+	 */
+	public long getPercentile (double percentile) {
+		// count values (buckets may change while reading)
+		long count = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) count += this.buckets.get (i);
+		if (count == 0) return 0;
+
+		// find bucket
+		long rank = Math.max (1, ((long) Math.ceil ((Math.min (100, Math.max (0, percentile)) / 100) * count)));
+		long seen = 0;
+
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += this.buckets.get (i);
+			if (seen >= rank) return Math.min (getBucketLimit (i), this.maximum.get ());
+		}
+
+		return this.maximum.get ();
+	}
+
+	/**
+	 * Resets all recorded values.
+	 * Values recorded concurrently may be partially lost.
+	 */
+	public void reset () {
+		for (int i = 0; i < BUCKET_COUNT; i++) this.buckets.set (i, 0);
+
+		this.count.set (0);
+		this.total.set (0);
+		this.maximum.set (0);
+	}
+}
@@ -0,0 +1,145 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.dependency;
+
+import com.evilco.bukkit.util.plugin.exception.MissingDependencyException;
+
+/**
+ * Represents a cached handle to a dependency.
+ * Handles are resolved on first access and cached until their registry invalidates them (when a plugin is enabled or
+ * disabled). Missing dependencies are cached as well, so {@link #isAvailable()} is a cheap check on hot paths.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public abstract class Dependency<T> {
+
+	/**
+	 * Marks handles which have not been resolved yet.
+	 */
+	protected static final Object UNRESOLVED = new Object ();
+
+	/**
+	 * Stores the parent registry.
+	 */
+	protected final DependencyRegistry registry;
+
+	/**
+	 * Stores the dependency type.
+	 */
+	protected final Class<T> type;
+
+	/**
+	 * Stores the resolved value (null if missing or {@link #UNRESOLVED}).
+	 */
+	protected volatile Object value = UNRESOLVED;
+
+	/**
+	 * Stores the amount of invalidations (results resolved before an invalidation are not cached).
+	 */
+	protected volatile int generation = 0;
+
+	/**
+	 * @param registry
+	 * @param type
+	 */
+	protected Dependency (DependencyRegistry registry, Class<T> type) {
+		this.registry = registry;
+		this.type = type;
+	}
+
+	/**
+	 * Returns the dependency (or null if it is not available).
+	 * @return
+	 */
+	@SuppressWarnings ("unchecked")
+	public T get () {
+		Object value = this.value;
+		if (value != UNRESOLVED) return ((T) value);
+
+		// resolve dependency (results are only cached while invalidations are received)
+		int generation = this.generation;
+		T resolved = this.resolve ();
+
+		if (this.registry.registerListener () && this.isCacheable (resolved)) {
+			synchronized (this) {
+				if (this.generation == generation) this.value = resolved;
+			}
+		}
+
+		return resolved;
+	}
+
+	/**
+	 * Returns the dependency.
+	 * @return
+	 * @throws MissingDependencyException
+	 */
+	public T require () throws MissingDependencyException {
+		T value = this.get ();
+		if (value == null) throw new MissingDependencyException (this.getName ());
+
+		return value;
+	}
+
+	/**
+	 * Checks whether the dependency is available.
+	 * @return
+	 */
+	public boolean isAvailable () {
+		return (this.get () != null);
+	}
+
+	/**
+	 * Drops the cached value.
+	 */
+	public synchronized void invalidate () {
+		this.generation++;
+		this.value = UNRESOLVED;
+	}
+
+	/**
+	 * Returns the dependency name.
+	 * @return
+	 */
+	public abstract String getName ();
+
+	/**
+	 * Returns the dependency type.
+	 * @return
+	 */
+	public Class<T> getType () {
+		return this.type;
+	}
+
+	/**
+	 * Checks whether a resolved value may be cached until the next invalidation.
+	 * @param value
+	 * @return
+	 */
+	protected boolean isCacheable (T value) {
+		return true;
+	}
+
+	/**
+	 * Resolves the dependency.
+	 * @return The dependency (or null if it is not available).
+	 */
+	protected abstract T resolve ();
+}
@@ -0,0 +1,176 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.dependency;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Stores the dependency handles of a plugin and invalidates them whenever a plugin is enabled or disabled.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class DependencyRegistry implements Listener {
+
+	/**
+	 * Stores all handles by type and name.
+	 */
+	protected final ConcurrentMap<String, Dependency<?>> dependencies = new ConcurrentHashMap<String, Dependency<?>> ();
+
+	/**
+	 * Stores all plugins which are being disabled (or have been disabled since).
+	 */
+	protected final Set<Plugin> disabledPlugins = Collections.synchronizedSet (Collections.newSetFromMap (new WeakHashMap<Plugin, Boolean> ()));
+
+	/**
+	 * Indicates whether the listener has been registered.
+	 */
+	protected volatile boolean listenerRegistered = false;
+
+	/**
+	 * Stores the parent plugin.
+	 */
+	protected final Plugin plugin;
+
+	/**
+	 * @param plugin
+	 */
+	public DependencyRegistry (Plugin plugin) {
+		this.plugin = plugin;
+	}
+
+	/**
+	 * Returns the handle of a plugin dependency.
+	 * @param type
+	 * @param name
+	 * @return
+	 */
+	@SuppressWarnings ("unchecked")
+	public <T extends Plugin> PluginDependency<T> getPlugin (Class<T> type, String name) {
+		String key = "plugin:" + name + ":" + type.getName ();
+		Dependency<?> dependency = this.dependencies.get (key);
+
+		if (dependency == null) {
+			dependency = new PluginDependency<T> (this, type, name);
+
+			Dependency<?> existing = this.dependencies.putIfAbsent (key, dependency);
+			if (existing != null) dependency = existing;
+		}
+
+		return ((PluginDependency<T>) dependency);
+	}
+
+	/**
+	 * Returns the handle of a service.
+	 * @param type
+	 * @return
+	 */
+	@SuppressWarnings ("unchecked")
+	public <T> ServiceDependency<T> getService (Class<T> type) {
+		String key = "service:" + type.getName ();
+		Dependency<?> dependency = this.dependencies.get (key);
+
+		if (dependency == null) {
+			dependency = new ServiceDependency<T> (this, type);
+
+			Dependency<?> existing = this.dependencies.putIfAbsent (key, dependency);
+			if (existing != null) dependency = existing;
+		}
+
+		return ((ServiceDependency<T>) dependency);
+	}
+
+	/**
+	 * Returns the parent plugin.
+	 * @return
+	 */
+	public Plugin getPlugin () {
+		return this.plugin;
+	}
+
+	/**
+	 * Drops all cached values.
+	 */
+	public void invalidateAll () {
+		for (Dependency<?> dependency : this.dependencies.values ()) dependency.invalidate ();
+	}
+
+	/**
+	 * Checks whether a plugin is enabled and not being disabled.
+	 * Plugins are disabled after {@link PluginDisableEvent} has been handled, so values provided by them must not be
+	 * cached past the invalidation.
+	 * @param plugin
+	 * @return
+	 */
+	public boolean isActive (Plugin plugin) {
+		return (plugin != null && plugin.isEnabled () && !this.disabledPlugins.contains (plugin));
+	}
+
+	/**
+	 * Registers the invalidation listener (if the parent plugin is enabled).
+	 * @return True if the listener is registered.
+	 */
+	public boolean registerListener () {
+		if (this.listenerRegistered) return true;
+
+		synchronized (this) {
+			if (this.listenerRegistered) return true;
+			if (!this.plugin.isEnabled ()) return false;
+
+			this.plugin.getServer ().getPluginManager ().registerEvents (this, this.plugin);
+			this.listenerRegistered = true;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Handles plugin startups.
+	 * @param event
+	 */
+	@EventHandler (priority = EventPriority.MONITOR)
+	public void onPluginEnable (PluginEnableEvent event) {
+		this.disabledPlugins.remove (event.getPlugin ());
+		this.invalidateAll ();
+	}
+
+	/**
+	 * Handles plugin shutdowns.
+	 * @param event
+	 */
+	@EventHandler (priority = EventPriority.MONITOR)
+	public void onPluginDisable (PluginDisableEvent event) {
+		this.disabledPlugins.add (event.getPlugin ());
+		this.invalidateAll ();
+
+		// listeners are unregistered with their plugin
+		if (event.getPlugin () == this.plugin) this.listenerRegistered = false;
+	}
+}
@@ -0,0 +1,61 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.dependency;
+
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Represents a cached handle to a plugin.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class PluginDependency<T extends Plugin> extends Dependency<T> {
+
+	/**
+	 * Stores the plugin name.
+	 */
+	protected final String name;
+
+	/**
+	 * @param registry
+	 * @param type
+	 * @param name
+	 */
+	public PluginDependency (DependencyRegistry registry, Class<T> type, String name) {
+		super (registry, type);
+		this.name = name;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getName () {
+		return this.name;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected T resolve () {
+		return this.type.cast (this.registry.getPlugin ().getServer ().getPluginManager ().getPlugin (this.name));
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.dependency;
+
+import org.bukkit.plugin.RegisteredServiceProvider;
+
+/**
+ * Represents a cached handle to a service provided through the services manager.
+ * The provider with the highest priority is bound. Providers are registered while their plugin is enabled, so the
+ * handle is rebound after plugins are enabled or disabled. Providers of plugins which are being disabled are not cached
+ * since they are still registered until the plugin shutdown has completed.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class ServiceDependency<T> extends Dependency<T> {
+
+	/**
+	 * @param registry
+	 * @param type
+	 */
+	public ServiceDependency (DependencyRegistry registry, Class<T> type) {
+		super (registry, type);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getName () {
+		return this.type.getName ();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected boolean isCacheable (T value) {
+		if (value == null) return true;
+
+		RegisteredServiceProvider<T> registration = this.registry.getPlugin ().getServer ().getServicesManager ().getRegistration (this.type);
+		return (registration != null && registration.getProvider () == value && this.registry.isActive (registration.getPlugin ()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected T resolve () {
+		return this.registry.getPlugin ().getServer ().getServicesManager ().load (this.type);
+	}
+}
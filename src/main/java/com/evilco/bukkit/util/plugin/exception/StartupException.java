@@ -0,0 +1,55 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.exception;
+
+/**
+ * Occurs if a startup stage fails.
+ * @author			Johannes Donath <johannesd@evil-co.com>
+ * @copyright		(C) 2014 Evil-Co <http://www.evil-co.com>
+ * @license			GNU Lesser General Public License <http://www.gnu.org/licenses/lgpl.txt>
+ * @package			com.evilco.bukkit.util.plugin.exception
+ */
+public class StartupException extends Exception {
+	private static final long serialVersionUID = -4425312084931166395L;
+
+	/**
+	 * Stores the failed stage name.
+	 */
+	protected String stage;
+	
+	/**
+	 * Constructs a new startup exception.
+	 * @param stage
+	 * @param message
+	 * @param cause
+	 */
+	public StartupException(String stage, String message, Throwable cause) {
+		super(message, cause);
+		this.stage = stage;
+	}
+	
+	/**
+	 * Returns the failed stage's name.
+	 * @return
+	 */
+	public String getStage() {
+		return this.stage;
+	}
+}
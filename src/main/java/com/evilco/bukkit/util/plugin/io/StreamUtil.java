@@ -19,33 +19,268 @@
  */
 package com.evilco.bukkit.util.plugin.io;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * A simple stream utility.
+ * File backed streams and channels are copied by the operating system (transferTo) while all other streams are copied
+ * through a buffer which is reused per thread. Copies always end at the end of the stream, contents beyond the reported
+ * size of a file (or of files which do not report a size at all) are copied through the buffer.
  * @author			Johannes Donath <johannesd@evil-co.com>
  * @copyright		(C) 2013 Evil-Co <http://www.evil-co.com>
  * @license			GNU Lesser General Public License <http://www.gnu.org/licenses/lgpl.txt>
  * @package			com.evilco.bukkit.util.plugin.exception
  */
 public class StreamUtil {
-
+	
+	/**
+	 * Defines the size of copy buffers.
+	 */
+	public static final int BUFFER_SIZE = 65536;
+	
+	/**
+	 * Defines the size above which files are mapped into memory instead of being read.
+	 */
+	public static final long MAPPING_THRESHOLD = 1048576;
+	
+	/**
+	 * Defines the maximum size of a single mapping returned by {@link #readChunks(Path)}.
+	 */
+	public static final long MAPPING_CHUNK_SIZE = 1073741824;
+	
+	/**
+	 * Stores a heap buffer per thread.
+	 */
+	protected static final ThreadLocal<byte[]> HEAP_BUFFER = new ThreadLocal<byte[]>() {
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected byte[] initialValue() {
+			return new byte[BUFFER_SIZE];
+		}
+	};
+	
+	/**
+	 * Stores a direct buffer per thread.
+	 */
+	protected static final ThreadLocal<ByteBuffer> DIRECT_BUFFER = new ThreadLocal<ByteBuffer>() {
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+	};
+	
 	/**
 	 * Copies the contents of an input stream into an output stream.
+	 * Reads which return no data are retried, only the end of the stream (-1) ends the copy.
 	 * @param in
 	 * @param out
+	 * @return The amount of copied bytes.
 	 * @throws IOException
 	 */
-	public static void copy(InputStream in, OutputStream out) throws IOException {
-		// create buffer
-		byte[] buffer = new byte[8192]; // This should work for bigger files without problems, too ...
-		int length = 0;
+	public static long copy(InputStream in, OutputStream out) throws IOException {
+		long copied = 0;
+		
+		// copy files directly (subclasses may override read or write and are copied regularly)
+		if (in.getClass() == FileInputStream.class && out.getClass() == FileOutputStream.class) {
+			FileChannel channel = ((FileInputStream) in).getChannel();
+			if (isSeekable(channel)) copied = transfer(channel, ((FileOutputStream) out).getChannel());
+		}
 		
-		// copy stream
-		while((length = in.read(buffer)) > 0) {
+		// get buffer
+		byte[] buffer = HEAP_BUFFER.get();
+		int length;
+		
+		// copy remaining contents (until the end of the stream)
+		while((length = in.read(buffer)) != -1) {
 			out.write(buffer, 0, length);
+			copied += length;
+		}
+		
+		return copied;
+	}
+	
+	/**
+	 * Copies the contents of a channel into another channel.
+	 * @param in
+	 * @param out
+	 * @return The amount of copied bytes.
+	 * @throws IOException
+	 */
+	public static long copy(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+		long copied = 0;
+		
+		// copy files directly
+		if (in instanceof FileChannel && isSeekable((FileChannel) in)) copied = transfer((FileChannel) in, out);
+		
+		// get buffer
+		ByteBuffer buffer = DIRECT_BUFFER.get();
+		int length;
+		
+		buffer.clear();
+		
+		// copy remaining contents (until the end of the channel)
+		try {
+			while((length = in.read(buffer)) != -1) {
+				copied += length;
+				
+				// write buffer contents
+				buffer.flip();
+				while(buffer.hasRemaining()) out.write(buffer);
+				buffer.clear();
+			}
+		} finally {
+			buffer.clear();
+		}
+		
+		return copied;
+	}
+	
+	/**
+	 * Copies a file.
+	 * @param source
+	 * @param target The target file (replaced if it exists).
+	 * @return The amount of copied bytes.
+	 * @throws IOException
+	 */
+	public static long copy(File source, File target) throws IOException {
+		return copy(source.toPath(), target.toPath());
+	}
+	
+	/**
+	 * Copies a file.
+	 * @param source
+	 * @param target The target file (replaced if it exists).
+	 * @return The amount of copied bytes.
+	 * @throws IOException
+	 */
+	public static long copy(Path source, Path target) throws IOException {
+		FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+		
+		try {
+			FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+			
+			try {
+				return copy((ReadableByteChannel) in, out);
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
 		}
 	}
+	
+	/**
+	 * Reads a whole file.
+	 * Files above {@link #MAPPING_THRESHOLD} are mapped into memory (read only) instead of being copied to the heap.
+	 * A single buffer is limited to 2 GiB, larger files need to be read with {@link #readChunks(Path)}.
+	 * @param file
+	 * @return
+	 * @throws IOException If the file cannot be read or is larger than 2 GiB.
+	 */
+	public static ByteBuffer read(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		
+		try {
+			long size = channel.size();
+			
+			// buffers are indexed by int
+			if (size > Integer.MAX_VALUE) throw new IOException("File " + file + " is too large to be read into a single buffer (" + size + " bytes)");
+			
+			// map large files
+			if (size > MAPPING_THRESHOLD) return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			
+			// read small files
+			return ByteBuffer.wrap(Files.readAllBytes(file));
+		} finally {
+			// mappings stay valid after the channel has been closed
+			channel.close();
+		}
+	}
+	
+	/**
+	 * Reads a whole file of any size as consecutive read only mappings of up to {@link #MAPPING_CHUNK_SIZE} bytes.
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static ByteBuffer[] readChunks(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		
+		try {
+			long size = channel.size();
+			ByteBuffer[] chunks = new ByteBuffer[(int) ((size + MAPPING_CHUNK_SIZE - 1) / MAPPING_CHUNK_SIZE)];
+			
+			// map chunks
+			for (int i = 0; i < chunks.length; i++) {
+				long position = (((long) i) * MAPPING_CHUNK_SIZE);
+				chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPING_CHUNK_SIZE, (size - position)));
+			}
+			
+			return chunks;
+		} finally {
+			// mappings stay valid after the channel has been closed
+			channel.close();
+		}
+	}
+	
+	/**
+	 * Checks whether a file channel supports positioning (pipes and terminals do not).
+	 * @param channel
+	 * @return
+	 */
+	protected static boolean isSeekable(FileChannel channel) {
+		try {
+			channel.position();
+			return true;
+		} catch (IOException ex) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Transfers the remaining contents of a file channel into another channel (starting at the current position).
+	 * The transfer is limited to the reported file size, callers need to read the remaining contents (if any) until the
+	 * end of the channel is reached (e.g. files which report a size of zero).
+	 * @param in
+	 * @param out
+	 * @return The amount of copied bytes.
+	 * @throws IOException
+	 */
+	protected static long transfer(FileChannel in, WritableByteChannel out) throws IOException {
+		long start = in.position();
+		long position = start;
+		long size = in.size();
+		
+		// transfer (stops early if the file is truncated meanwhile)
+		while(position < size) {
+			long length = in.transferTo(position, (size - position), out);
+			if (length <= 0) break;
+			
+			position += length;
+		}
+		
+		// keep channel state consistent with a regular read
+		in.position(position);
+		
+		return (position - start);
+	}
 }
@@ -33,15 +33,227 @@
  */
 package com.evilco.bukkit.util.plugin.java;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Helps out with minor reflection tasks.
+ * Accessors are resolved once per class and member (including failed lookups) and cached as method handles. The cache
+ * is attached to the class itself and thus never keeps a class loader alive.
  * @author			Johannes Donath
  * @copyright			Copyright (C) 2013 Evil-Co <http://www.evil-co.org>
  */
 public class ReflectionUtility {
 
+	/**
+	 * Marks failed lookups.
+	 */
+	protected static final MethodHandle MISSING = MethodHandles.constant (Object.class, null);
+
+	/**
+	 * Defines the type of field getters.
+	 */
+	protected static final MethodType GETTER_TYPE = MethodType.methodType (Object.class, Object.class);
+
+	/**
+	 * Defines the type of field setters.
+	 */
+	protected static final MethodType SETTER_TYPE = MethodType.methodType (void.class, Object.class, Object.class);
+
+	/**
+	 * Stores resolved accessors per class.
+	 */
+	protected static final ClassValue<ConcurrentMap<Object, MethodHandle>> ACCESSORS = new ClassValue<ConcurrentMap<Object, MethodHandle>> () {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected ConcurrentMap<Object, MethodHandle> computeValue (Class<?> type) {
+			return new ConcurrentHashMap<Object, MethodHandle> ();
+		}
+	};
+
+	/**
+	 * Returns a cached accessor (or null if the accessor has not been resolved yet).
+	 * @param clazz
+	 * @param key
+	 * @return
+	 */
+	protected static MethodHandle getCached (Class<?> clazz, Object key) {
+		return ACCESSORS.get (clazz).get (key);
+	}
+
+	/**
+	 * Caches an accessor.
+	 * @param clazz
+	 * @param key
+	 * @param handle The accessor (or null if the member does not exist).
+	 * @return The accessor (or null if the member does not exist).
+	 */
+	protected static MethodHandle cache (Class<?> clazz, Object key, MethodHandle handle) {
+		ACCESSORS.get (clazz).put (key, (handle != null ? handle : MISSING));
+		return handle;
+	}
+
+	/**
+	 * Finds a field within the whole class tree.
+	 * @param clazz
+	 * @param fieldName
+	 * @return The field (or null if no such field exists).
+	 */
+	protected static Field findField (Class<?> clazz, String fieldName) {
+		for (; clazz != null; clazz = clazz.getSuperclass ()) {
+			for (Field field : clazz.getDeclaredFields ()) {
+				if (field.getName ().equals (fieldName)) return field;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns a getter for a field of any class.
+	 * The getter is of type (Object)Object and ignores its argument for static fields.
+	 * Note: This ignores security levels defined by the parent class.
+	 * @param clazz
+	 * @param fieldName
+	 * @return The getter (or null if no such field exists).
+	 */
+	public static MethodHandle getFieldGetter (Class<?> clazz, String fieldName) {
+		String key = "get:" + fieldName;
+
+		// cached lookup
+		MethodHandle handle = getCached (clazz, key);
+		if (handle != null) return (handle != MISSING ? handle : null);
+
+		// find field
+		Field field = findField (clazz, fieldName);
+		if (field == null) return cache (clazz, key, null);
+
+		try {
+			field.setAccessible (true);
+			handle = MethodHandles.lookup ().unreflectGetter (field);
+
+			// adapt to common type
+			if (Modifier.isStatic (field.getModifiers ())) handle = MethodHandles.dropArguments (handle, 0, Object.class);
+			handle = handle.asType (GETTER_TYPE);
+		} catch (IllegalAccessException ex) {
+			handle = null;
+		} catch (SecurityException ex) {
+			handle = null;
+		}
+
+		return cache (clazz, key, handle);
+	}
+
+	/**
+	 * Returns a setter for a field of any class.
+	 * The setter is of type (Object, Object)void and ignores its first argument for static fields.
+	 * Note: This ignores security levels defined by the parent class.
+	 * @param clazz
+	 * @param fieldName
+	 * @return The setter (or null if no such field exists or the field is static and final).
+	 */
+	public static MethodHandle getFieldSetter (Class<?> clazz, String fieldName) {
+		String key = "set:" + fieldName;
+
+		// cached lookup
+		MethodHandle handle = getCached (clazz, key);
+		if (handle != null) return (handle != MISSING ? handle : null);
+
+		// find field
+		Field field = findField (clazz, fieldName);
+		if (field == null) return cache (clazz, key, null);
+
+		try {
+			field.setAccessible (true);
+			handle = MethodHandles.lookup ().unreflectSetter (field);
+
+			// adapt to common type
+			if (Modifier.isStatic (field.getModifiers ())) handle = MethodHandles.dropArguments (handle, 0, Object.class);
+			handle = handle.asType (SETTER_TYPE);
+		} catch (IllegalAccessException ex) {
+			handle = null;
+		} catch (SecurityException ex) {
+			handle = null;
+		}
+
+		return cache (clazz, key, handle);
+	}
+
+	/**
+	 * Returns a handle for a method of any class (the first declaration found within the class tree).
+	 * Instance methods expect the target object as first argument.
+	 * Note: This ignores security levels defined by the parent class.
+	 * @param clazz
+	 * @param methodName
+	 * @param parameterTypes
+	 * @return The handle (or null if no such method exists).
+	 */
+	public static MethodHandle getMethod (Class<?> clazz, String methodName, Class<?>... parameterTypes) {
+		MemberKey key = new MemberKey (methodName, parameterTypes);
+
+		// cached lookup
+		MethodHandle handle = getCached (clazz, key);
+		if (handle != null) return (handle != MISSING ? handle : null);
+
+		// find method
+		for (Class<?> current = clazz; current != null && handle == null; current = current.getSuperclass ()) {
+			for (Method method : current.getDeclaredMethods ()) {
+				if (!method.getName ().equals (methodName) || !Arrays.equals (method.getParameterTypes (), parameterTypes)) continue;
+
+				try {
+					method.setAccessible (true);
+					handle = MethodHandles.lookup ().unreflect (method);
+				} catch (IllegalAccessException ex) {
+				} catch (SecurityException ex) { }
+
+				break;
+			}
+		}
+
+		return cache (clazz, key, handle);
+	}
+
+	/**
+	 * Returns a handle for a constructor of any class.
+	 * Note: This ignores security levels defined by the class.
+	 * @param clazz
+	 * @param parameterTypes
+	 * @return The handle (or null if no such constructor exists).
+	 */
+	public static MethodHandle getConstructor (Class<?> clazz, Class<?>... parameterTypes) {
+		MemberKey key = new MemberKey ("<init>", parameterTypes);
+
+		// cached lookup
+		MethodHandle handle = getCached (clazz, key);
+		if (handle != null) return (handle != MISSING ? handle : null);
+
+		// find constructor
+		for (Constructor<?> constructor : clazz.getDeclaredConstructors ()) {
+			if (!Arrays.equals (constructor.getParameterTypes (), parameterTypes)) continue;
+
+			try {
+				constructor.setAccessible (true);
+				handle = MethodHandles.lookup ().unreflectConstructor (constructor);
+			} catch (IllegalAccessException ex) {
+			} catch (SecurityException ex) { }
+
+			break;
+		}
+
+		return cache (clazz, key, handle);
+	}
+
 	/**
 	 * Returns a field value from any class.
 	 * Note: This ignores security levels defined by the parent class.
@@ -51,27 +263,82 @@ public class ReflectionUtility {
 	 * @return
 	 */
 	public static <T> T getField (Object object, String fieldName) {
-		// get class
-		Class<?> clazz = object.getClass ();
+		MethodHandle getter = getFieldGetter (object.getClass (), fieldName);
 
-		// check the whole class tree
-		do {
-			try {
-				// get the field of this value
-				Field field = clazz.getDeclaredField (fieldName);
+		// in case of failure (field not found, illegal access?!)
+		if (getter == null) return null;
 
-				// make field accessible
-				if (!field.isAccessible ()) field.setAccessible (true);
+		try {
+			return ((T) getter.invokeExact (object));
+		} catch (Throwable ex) {
+			return null;
+		}
+	}
 
-				// return field value
-				return ((T) field.get (object));
+	/**
+	 * Sets a field value in any class.
+	 * Note: This ignores security levels defined by the parent class.
+	 * @param object
+	 * @param fieldName
+	 * @param value
+	 * @return True if the value has been set.
+	 */
+	public static boolean setField (Object object, String fieldName, Object value) {
+		MethodHandle setter = getFieldSetter (object.getClass (), fieldName);
 
-			// ignore all errors
-			} catch (NoSuchFieldException ex) {
-			} catch (IllegalAccessException ex) { }
-		} while ((clazz = clazz.getSuperclass ()) != null);
+		// in case of failure (field not found, final field or type mismatch)
+		if (setter == null) return false;
 
-		// in case of failure (field not found, illegal access?!)
-		return null;
+		try {
+			setter.invokeExact (object, value);
+			return true;
+		} catch (Throwable ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * Identifies a method or constructor by name and parameter types.
+	 * Parameter types are compared by identity since classes of different class loaders may share their names.
+	 */
+	protected static class MemberKey {
+
+		/**
+		 * Stores the member name.
+		 */
+		protected final String name;
+
+		/**
+		 * Stores the parameter types.
+		 */
+		protected final Class<?>[] parameterTypes;
+
+		/**
+		 * @param name
+		 * @param parameterTypes
+		 */
+		public MemberKey (String name, Class<?>[] parameterTypes) {
+			this.name = name;
+			this.parameterTypes = parameterTypes.clone ();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean equals (Object object) {
+			if (!(object instanceof MemberKey)) return false;
+
+			MemberKey key = ((MemberKey) object);
+			return (this.name.equals (key.name) && Arrays.equals (this.parameterTypes, key.parameterTypes));
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int hashCode () {
+			return (this.name.hashCode () * 31 + Arrays.hashCode (this.parameterTypes));
+		}
 	}
 }
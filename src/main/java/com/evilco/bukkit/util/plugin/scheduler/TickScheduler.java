@@ -0,0 +1,299 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.scheduler;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes splittable work units on the main thread within a fixed time budget per tick.
+ * The scheduler is shared by all plugins which load this library from the same class loader. Plugins which shade the
+ * library get a scheduler (and thus a budget) of their own, budgets are only shared between plugins which use a common
+ * copy. The budget is divided evenly between all plugins with pending work (time which is not used by a plugin is passed
+ * on to the next one) and the plugin which is processed first rotates every tick. A single repeating task drives all
+ * queues while work is pending. The queue of a plugin is dropped when the plugin is disabled and the task moves on to
+ * another plugin if its owner is disabled.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class TickScheduler {
+
+	/**
+	 * Defines the default budget per tick (in nanoseconds).
+	 */
+	public static final long DEFAULT_BUDGET = TimeUnit.MILLISECONDS.toNanos (5);
+
+	/**
+	 * Stores the shared instance.
+	 */
+	protected static final TickScheduler INSTANCE = new TickScheduler ();
+
+	/**
+	 * Stores all queues by plugin name.
+	 */
+	protected final ConcurrentMap<String, WorkQueue> queues = new ConcurrentHashMap<String, WorkQueue> ();
+
+	/**
+	 * Stores the budget per tick (in nanoseconds).
+	 */
+	protected volatile long budget = DEFAULT_BUDGET;
+
+	/**
+	 * Stores the amount of ticks which exceeded the budget.
+	 */
+	protected final AtomicLong overruns = new AtomicLong ();
+
+	/**
+	 * Stores the amount of ticks in which work was processed.
+	 */
+	protected final AtomicLong ticks = new AtomicLong ();
+
+	/**
+	 * Stores the time spent in the last tick (in nanoseconds).
+	 */
+	protected volatile long lastTickTime = 0;
+
+	/**
+	 * Stores the driving task (or null if no work is pending).
+	 */
+	protected BukkitTask task = null;
+
+	/**
+	 * Stores the plugin which owns the driving task.
+	 */
+	protected Plugin taskOwner = null;
+
+	/**
+	 * Stores the index of the queue which is processed first.
+	 */
+	protected int rotation = 0;
+
+	/**
+	 * Returns the shared instance.
+	 * @return
+	 */
+	public static TickScheduler getInstance () {
+		return INSTANCE;
+	}
+
+	/**
+	 * Submits a work unit on behalf of a plugin.
+	 * @param plugin
+	 * @param unit
+	 * @return A future which completes with the unit (cancelling the future stops the unit after its current chunk).
+	 */
+	public Future<Void> submit (Plugin plugin, WorkUnit unit) {
+		Future<Void> future = this.getQueue (plugin).add (unit);
+		this.start (plugin);
+
+		return future;
+	}
+
+	/**
+	 * Returns the queue of a plugin (the queue is created if necessary).
+	 * @param plugin
+	 * @return
+	 */
+	public WorkQueue getQueue (Plugin plugin) {
+		WorkQueue queue = this.queues.get (plugin.getName ());
+
+		// replace queues of reloaded plugins
+		if (queue == null || queue.getPlugin () != plugin) {
+			WorkQueue created = new WorkQueue (plugin);
+
+			if (queue == null)
+				queue = this.queues.putIfAbsent (plugin.getName (), created);
+			else if (this.queues.replace (plugin.getName (), queue, created)) {
+				queue.cancelAll ();
+				queue = null;
+			} else
+				return this.getQueue (plugin);
+
+			if (queue == null) {
+				queue = created;
+
+				// drop the queue when the plugin is disabled
+				if (plugin.isEnabled ()) plugin.getServer ().getPluginManager ().registerEvents (new TickSchedulerListener (this, plugin), plugin);
+			}
+		}
+
+		return queue;
+	}
+
+	/**
+	 * Returns all queues.
+	 * @return
+	 */
+	public Collection<WorkQueue> getQueues () {
+		return Collections.unmodifiableCollection (this.queues.values ());
+	}
+
+	/**
+	 * Returns the budget per tick.
+	 * @param unit
+	 * @return
+	 */
+	public long getBudget (TimeUnit unit) {
+		return unit.convert (this.budget, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Sets the budget per tick.
+	 * @param budget
+	 * @param unit
+	 */
+	public void setBudget (long budget, TimeUnit unit) {
+		if (budget <= 0) throw new IllegalArgumentException ("The budget must be positive");
+		this.budget = unit.toNanos (budget);
+	}
+
+	/**
+	 * Returns the time spent in the last tick.
+	 * @param unit
+	 * @return
+	 */
+	public long getLastTickTime (TimeUnit unit) {
+		return unit.convert (this.lastTickTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Returns the amount of ticks which exceeded the budget.
+	 * @return
+	 */
+	public long getOverruns () {
+		return this.overruns.get ();
+	}
+
+	/**
+	 * Returns the amount of ticks in which work was processed.
+	 * @return
+	 */
+	public long getTicks () {
+		return this.ticks.get ();
+	}
+
+	/**
+	 * Starts the driving task (if necessary).
+	 * @param plugin The plugin which owns the task if a new task is created.
+	 */
+	protected synchronized void start (Plugin plugin) {
+		if (this.task != null && this.taskOwner.isEnabled ()) return;
+
+		this.task = plugin.getServer ().getScheduler ().runTaskTimer (plugin, new Runnable () {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public void run () {
+				TickScheduler.this.tick ();
+			}
+		}, 1, 1);
+		this.taskOwner = plugin;
+	}
+
+	/**
+	 * Stops the driving task (if no work is pending).
+	 */
+	protected synchronized void stop () {
+		for (WorkQueue queue : this.queues.values ()) {
+			if (queue.getBacklog () > 0) return;
+		}
+
+		if (this.task != null) this.task.cancel ();
+		this.task = null;
+		this.taskOwner = null;
+	}
+
+	/**
+	 * Drops the queue of a disabled plugin and moves the driving task to another plugin if necessary.
+	 * @param plugin
+	 */
+	protected synchronized void release (Plugin plugin) {
+		WorkQueue queue = this.queues.get (plugin.getName ());
+		if (queue != null && queue.getPlugin () == plugin && this.queues.remove (plugin.getName (), queue)) queue.cancelAll ();
+
+		// tasks are cancelled along with their plugin
+		if (this.taskOwner != plugin) return;
+
+		this.task.cancel ();
+		this.task = null;
+		this.taskOwner = null;
+
+		for (WorkQueue remaining : this.queues.values ()) {
+			if (remaining.getBacklog () == 0 || !remaining.getPlugin ().isEnabled ()) continue;
+
+			this.start (remaining.getPlugin ());
+			return;
+		}
+	}
+
+	/**
+	 * Processes pending work within the budget.
+	 */
+	protected void tick () {
+		List<WorkQueue> pending = new ArrayList<WorkQueue> (this.queues.size ());
+		Iterator<WorkQueue> iterator = this.queues.values ().iterator ();
+
+		// collect queues with pending work (queues of disabled plugins are dropped)
+		while (iterator.hasNext ()) {
+			WorkQueue queue = iterator.next ();
+
+			if (!queue.getPlugin ().isEnabled ()) {
+				iterator.remove ();
+				queue.cancelAll ();
+			} else if (queue.getBacklog () > 0)
+				pending.add (queue);
+		}
+
+		if (pending.isEmpty ()) {
+			this.stop ();
+			return;
+		}
+
+		// process queues (the first queue always executes at least one chunk)
+		long budget = this.budget;
+		long elapsed = 0;
+		int offset = (this.rotation++ % pending.size ());
+
+		for (int i = 0; i < pending.size (); i++) {
+			long share = Math.max (0, (budget - elapsed) / (pending.size () - i));
+			if (share == 0 && i > 0) break;
+
+			elapsed += pending.get ((offset + i) % pending.size ()).process (share, (i == 0));
+		}
+
+		// update statistics
+		this.ticks.incrementAndGet ();
+		this.lastTickTime = elapsed;
+		if (elapsed > budget) this.overruns.incrementAndGet ();
+	}
+}
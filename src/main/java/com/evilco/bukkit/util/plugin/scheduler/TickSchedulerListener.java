@@ -0,0 +1,65 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.scheduler;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Releases the work queue of a plugin when the plugin is disabled.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class TickSchedulerListener implements Listener {
+
+	/**
+	 * Stores the parent scheduler.
+	 */
+	protected final TickScheduler scheduler;
+
+	/**
+	 * Stores the plugin.
+	 */
+	protected final Plugin plugin;
+
+	/**
+	 * @param scheduler
+	 * @param plugin
+	 */
+	public TickSchedulerListener (TickScheduler scheduler, Plugin plugin) {
+		this.scheduler = scheduler;
+		this.plugin = plugin;
+	}
+
+	/**
+	 * Handles plugin shutdowns.
+	 * @param event
+	 */
+	@EventHandler (priority = EventPriority.MONITOR)
+	public void onPluginDisable (PluginDisableEvent event) {
+		if (event.getPlugin () != this.plugin) return;
+
+		// drop pending work
+		this.scheduler.release (this.plugin);
+	}
+}
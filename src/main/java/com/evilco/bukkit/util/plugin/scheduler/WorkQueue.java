@@ -0,0 +1,282 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.scheduler;
+
+import org.bukkit.plugin.Plugin;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Stores the pending work units of a single plugin and their statistics.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class WorkQueue {
+
+	/**
+	 * Stores the parent plugin.
+	 */
+	protected final Plugin plugin;
+
+	/**
+	 * Stores all pending units.
+	 */
+	protected final Queue<Ticket> units = new ConcurrentLinkedQueue<Ticket> ();
+
+	/**
+	 * Stores the amount of pending units.
+	 */
+	protected final AtomicInteger backlog = new AtomicInteger ();
+
+	/**
+	 * Stores the amount of completed units.
+	 */
+	protected final AtomicLong completed = new AtomicLong ();
+
+	/**
+	 * Stores the amount of failed units.
+	 */
+	protected final AtomicLong failed = new AtomicLong ();
+
+	/**
+	 * Stores the amount of executed chunks.
+	 */
+	protected final AtomicLong chunks = new AtomicLong ();
+
+	/**
+	 * Stores the time spent in work units (in nanoseconds).
+	 */
+	protected final AtomicLong time = new AtomicLong ();
+
+	/**
+	 * Stores the amount of ticks in which this queue exceeded its share of the budget.
+	 */
+	protected final AtomicLong overruns = new AtomicLong ();
+
+	/**
+	 * Stores the longest time spent in a single tick (in nanoseconds).
+	 */
+	protected volatile long maximumTickTime = 0;
+
+	/**
+	 * @param plugin
+	 */
+	public WorkQueue (Plugin plugin) {
+		this.plugin = plugin;
+	}
+
+	/**
+	 * Appends a unit.
+	 * @param unit
+	 * @return
+	 */
+	protected Ticket add (WorkUnit unit) {
+		Ticket ticket = new Ticket (unit);
+
+		this.backlog.incrementAndGet ();
+		this.units.add (ticket);
+
+		return ticket;
+	}
+
+	/**
+	 * Processes units until the time share is exhausted (at least one chunk is executed if required).
+	 * @param share The time share (in nanoseconds).
+	 * @param force Whether at least one chunk is executed.
+	 * @return The time spent (in nanoseconds).
+	 */
+	protected long process (long share, boolean force) {
+		long start = System.nanoTime ();
+		long elapsed = 0;
+
+		while ((force || elapsed < share) && !this.units.isEmpty ()) {
+			Ticket ticket = this.units.peek ();
+
+			// skip cancelled units
+			if (ticket.isCancelled ()) {
+				this.units.poll ();
+				this.backlog.decrementAndGet ();
+				continue;
+			}
+
+			force = false;
+
+			// process chunk
+			boolean remaining;
+
+			try {
+				remaining = ticket.unit.run ();
+			} catch (Throwable ex) {
+				this.plugin.getLogger ().log (Level.SEVERE, "Could not process work unit: " + ex.getMessage (), ex);
+
+				this.failed.incrementAndGet ();
+				ticket.fail (ex);
+				remaining = false;
+			}
+
+			this.chunks.incrementAndGet ();
+			elapsed = (System.nanoTime () - start);
+
+			// finish unit
+			if (remaining && !ticket.isCancelled ()) continue;
+
+			this.units.poll ();
+			this.backlog.decrementAndGet ();
+
+			if (!ticket.isDone ()) {
+				this.completed.incrementAndGet ();
+				ticket.complete ();
+			}
+		}
+
+		// update statistics
+		this.time.addAndGet (elapsed);
+		if (elapsed > share) this.overruns.incrementAndGet ();
+		if (elapsed > this.maximumTickTime) this.maximumTickTime = elapsed;
+
+		return elapsed;
+	}
+
+	/**
+	 * Cancels all pending units.
+	 */
+	protected void cancelAll () {
+		Ticket ticket;
+
+		while ((ticket = this.units.poll ()) != null) {
+			this.backlog.decrementAndGet ();
+			ticket.cancel (false);
+		}
+	}
+
+	/**
+	 * Returns the amount of pending units.
+	 * @return
+	 */
+	public int getBacklog () {
+		return this.backlog.get ();
+	}
+
+	/**
+	 * Returns the amount of executed chunks.
+	 * @return
+	 */
+	public long getChunks () {
+		return this.chunks.get ();
+	}
+
+	/**
+	 * Returns the amount of completed units.
+	 * @return
+	 */
+	public long getCompleted () {
+		return this.completed.get ();
+	}
+
+	/**
+	 * Returns the amount of failed units.
+	 * @return
+	 */
+	public long getFailed () {
+		return this.failed.get ();
+	}
+
+	/**
+	 * Returns the longest time spent in a single tick.
+	 * @param unit
+	 * @return
+	 */
+	public long getMaximumTickTime (TimeUnit unit) {
+		return unit.convert (this.maximumTickTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Returns the amount of ticks in which this queue exceeded its share of the budget.
+	 * @return
+	 */
+	public long getOverruns () {
+		return this.overruns.get ();
+	}
+
+	/**
+	 * Returns the parent plugin.
+	 * @return
+	 */
+	public Plugin getPlugin () {
+		return this.plugin;
+	}
+
+	/**
+	 * Returns the time spent in work units.
+	 * @param unit
+	 * @return
+	 */
+	public long getTime (TimeUnit unit) {
+		return unit.convert (this.time.get (), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Represents a pending unit.
+	 */
+	protected static class Ticket extends FutureTask<Void> {
+
+		/**
+		 * Stores the unit.
+		 */
+		protected final WorkUnit unit;
+
+		/**
+		 * @param unit
+		 */
+		public Ticket (WorkUnit unit) {
+			super (new Runnable () {
+
+				/**
+				 * {@inheritDoc}
+				 */
+				@Override
+				public void run () { }
+			}, null);
+
+			this.unit = unit;
+		}
+
+		/**
+		 * Marks the unit as completed.
+		 */
+		protected void complete () {
+			this.set (null);
+		}
+
+		/**
+		 * Marks the unit as failed.
+		 * @param ex
+		 */
+		protected void fail (Throwable ex) {
+			this.setException (ex);
+		}
+	}
+}
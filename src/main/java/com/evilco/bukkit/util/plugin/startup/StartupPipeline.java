@@ -0,0 +1,381 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.startup;
+
+import com.evilco.bukkit.util.plugin.exception.StartupException;
+import org.bukkit.plugin.Plugin;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Executes the startup stages of a plugin in dependency order.
+ * Stages which do not access the Bukkit API (e.g. resource extraction, configuration parsing or class scanning) are
+ * executed in parallel on a fork-join pool while synchronous stages are executed on the main thread (which waits for
+ * the pipeline to complete). A trace of all stages is logged once the pipeline completes.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class StartupPipeline {
+
+	/**
+	 * Defines the default maximum amount of parallel stages (stages are usually blocked by I/O).
+	 */
+	public static final int DEFAULT_PARALLELISM = Math.max (2, Runtime.getRuntime ().availableProcessors ());
+
+	/**
+	 * Stores all stages by name (in declaration order).
+	 */
+	protected final Map<String, Node> stages = new LinkedHashMap<String, Node> ();
+
+	/**
+	 * Stores all finished or ready synchronous stages.
+	 */
+	protected final BlockingQueue<Node> events = new LinkedBlockingQueue<Node> ();
+
+	/**
+	 * Stores the parent plugin.
+	 */
+	protected final Plugin plugin;
+
+	/**
+	 * Stores the maximum amount of parallel stages.
+	 */
+	protected final int parallelism;
+
+	/**
+	 * Stores the level used to log traces.
+	 */
+	protected Level traceLevel = Level.INFO;
+
+	/**
+	 * Stores the pool (while the pipeline is executed).
+	 */
+	protected ForkJoinPool pool = null;
+
+	/**
+	 * Stores the amount of scheduled stages which did not finish yet.
+	 */
+	protected int running = 0;
+
+	/**
+	 * Stores the first failed stage.
+	 */
+	protected Node failure = null;
+
+	/**
+	 * Indicates whether the pipeline has been executed.
+	 */
+	protected boolean executed = false;
+
+	/**
+	 * @param plugin
+	 */
+	public StartupPipeline (Plugin plugin) {
+		this (plugin, DEFAULT_PARALLELISM);
+	}
+
+	/**
+	 * @param plugin
+	 * @param parallelism
+	 */
+	public StartupPipeline (Plugin plugin, int parallelism) {
+		this.plugin = plugin;
+		this.parallelism = Math.max (1, parallelism);
+	}
+
+	/**
+	 * Adds a stage.
+	 * @param name
+	 * @param synchronous Whether the stage accesses the Bukkit API (and thus needs to be executed on the main thread).
+	 * @param stage
+	 * @param dependencies The names of all stages which need to complete first.
+	 * @return
+	 */
+	public StartupPipeline addStage (String name, boolean synchronous, StartupStage stage, String... dependencies) {
+		if (this.stages.containsKey (name)) throw new IllegalArgumentException ("Duplicate stage \"" + name + "\"");
+
+		this.stages.put (name, new Node (name, synchronous, stage, dependencies));
+		return this;
+	}
+
+	/**
+	 * Sets the level used to log traces.
+	 * @param traceLevel
+	 */
+	public void setTraceLevel (Level traceLevel) {
+		this.traceLevel = traceLevel;
+	}
+
+	/**
+	 * Executes all stages (this method needs to be called from the main thread and returns once all stages completed).
+	 * @throws StartupException
+	 */
+	public void execute () throws StartupException {
+		if (!this.plugin.getServer ().isPrimaryThread ()) throw new IllegalStateException ("Startup pipelines need to be executed on the main thread");
+		if (this.executed) throw new IllegalStateException ("Startup pipelines can only be executed once");
+
+		this.executed = true;
+
+		this.link ();
+
+		// start independent stages
+		long start = System.nanoTime ();
+		this.pool = new ForkJoinPool (this.parallelism);
+
+		try {
+			for (Node node : this.stages.values ()) {
+				if (node.remaining == 0) this.schedule (node);
+			}
+
+			// process events until all scheduled stages finished
+			while (this.running > 0) {
+				Node node = this.events.take ();
+				if (!node.finished) node.execute ();
+
+				this.finish (node);
+			}
+		} catch (InterruptedException ex) {
+			this.pool.shutdownNow ();
+			Thread.currentThread ().interrupt ();
+
+			throw new StartupException (null, "Startup has been interrupted", ex);
+		} finally {
+			this.pool.shutdown ();
+			this.pool = null;
+		}
+
+		this.trace (System.nanoTime () - start);
+
+		// report failures
+		if (this.failure != null) throw new StartupException (this.failure.name, "Startup stage \"" + this.failure.name + "\" failed: " + this.failure.error.getMessage (), this.failure.error);
+	}
+
+	/**
+	 * Links all stages to their dependents and verifies the dependency graph.
+	 * @throws StartupException
+	 */
+	protected void link () throws StartupException {
+		for (Node node : this.stages.values ()) {
+			for (String dependency : node.dependencies) {
+				Node parent = this.stages.get (dependency);
+				if (parent == null) throw new StartupException (node.name, "Startup stage \"" + node.name + "\" depends on unknown stage \"" + dependency + "\"", null);
+
+				parent.dependents.add (node);
+			}
+		}
+
+		// detect cycles
+		Map<Node, Integer> remaining = new HashMap<Node, Integer> ();
+		Deque<Node> queue = new ArrayDeque<Node> ();
+
+		for (Node node : this.stages.values ()) {
+			remaining.put (node, node.remaining);
+			if (node.remaining == 0) queue.add (node);
+		}
+
+		int visited = 0;
+
+		while (!queue.isEmpty ()) {
+			visited++;
+
+			for (Node dependent : queue.poll ().dependents) {
+				int count = remaining.get (dependent) - 1;
+				remaining.put (dependent, count);
+
+				if (count == 0) queue.add (dependent);
+			}
+		}
+
+		if (visited < this.stages.size ()) throw new StartupException (null, "Startup stages contain a dependency cycle", null);
+	}
+
+	/**
+	 * Schedules a stage whose dependencies completed.
+	 * @param node
+	 */
+	protected void schedule (final Node node) {
+		// do not start further stages after a failure
+		if (this.failure != null) return;
+
+		this.running++;
+		node.scheduled = System.nanoTime ();
+
+		if (node.synchronous) {
+			this.events.add (node);
+			return;
+		}
+
+		this.pool.execute (new Runnable () {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public void run () {
+				node.execute ();
+				StartupPipeline.this.events.add (node);
+			}
+		});
+	}
+
+	/**
+	 * Handles a finished stage.
+	 * @param node
+	 */
+	protected void finish (Node node) {
+		this.running--;
+
+		if (node.error != null) {
+			if (this.failure == null) this.failure = node;
+			return;
+		}
+
+		for (Node dependent : node.dependents) {
+			if (--dependent.remaining == 0) this.schedule (dependent);
+		}
+	}
+
+	/**
+	 * Logs the trace of all stages.
+	 * @param elapsed The total time (in nanoseconds).
+	 */
+	protected void trace (long elapsed) {
+		if (!this.plugin.getLogger ().isLoggable (this.traceLevel)) return;
+
+		List<Node> executed = new ArrayList<Node> ();
+		long total = 0;
+
+		for (Node node : this.stages.values ()) {
+			if (!node.finished) continue;
+
+			executed.add (node);
+			total += (node.completed - node.started);
+		}
+
+		Collections.sort (executed, new Comparator<Node> () {
+
+			/**
+			 * {@inheritDoc}
+			 */
+			@Override
+			public int compare (Node o1, Node o2) {
+				return Long.compare (o1.started, o2.started);
+			}
+		});
+
+		this.plugin.getLogger ().log (this.traceLevel, "Startup completed in " + TimeUnit.NANOSECONDS.toMillis (elapsed) + " ms (" + TimeUnit.NANOSECONDS.toMillis (total) + " ms spent in " + executed.size () + " of " + this.stages.size () + " stages)");
+
+		for (Node node : executed) {
+			this.plugin.getLogger ().log (this.traceLevel, "  " + node.name + ": " + TimeUnit.NANOSECONDS.toMillis (node.completed - node.started) + " ms on " + node.thread + " (waited " + TimeUnit.NANOSECONDS.toMillis (node.started - node.scheduled) + " ms)" + (node.error != null ? " [failed]" : ""));
+		}
+	}
+
+	/**
+	 * Represents a stage and its execution state.
+	 */
+	protected static class Node {
+
+		/**
+		 * Stores the stage name.
+		 */
+		public final String name;
+
+		/**
+		 * Indicates whether the stage is executed on the main thread.
+		 */
+		public final boolean synchronous;
+
+		/**
+		 * Stores the stage.
+		 */
+		public final StartupStage stage;
+
+		/**
+		 * Stores the names of all dependencies.
+		 */
+		public final String[] dependencies;
+
+		/**
+		 * Stores all stages which depend on this stage.
+		 */
+		public final List<Node> dependents = new ArrayList<Node> ();
+
+		/**
+		 * Stores the amount of dependencies which did not complete yet.
+		 */
+		public int remaining;
+
+		/**
+		 * Stores the times at which the stage was scheduled, started and completed (in nanoseconds).
+		 */
+		public volatile long scheduled, started, completed;
+
+		/**
+		 * Stores the name of the executing thread.
+		 */
+		public volatile String thread;
+
+		/**
+		 * Stores the error (if any).
+		 */
+		public volatile Throwable error = null;
+
+		/**
+		 * Indicates whether the stage has been executed.
+		 */
+		public volatile boolean finished = false;
+
+		/**
+		 * @param name
+		 * @param synchronous
+		 * @param stage
+		 * @param dependencies
+		 */
+		public Node (String name, boolean synchronous, StartupStage stage, String[] dependencies) {
+			this.name = name;
+			this.synchronous = synchronous;
+			this.stage = stage;
+			this.dependencies = dependencies;
+			this.remaining = dependencies.length;
+		}
+
+		/**
+		 * Executes the stage.
+		 */
+		public void execute () {
+			this.thread = Thread.currentThread ().getName ();
+			this.started = System.nanoTime ();
+
+			try {
+				this.stage.run ();
+			} catch (Throwable ex) {
+				this.error = ex;
+			}
+
+			this.completed = System.nanoTime ();
+			this.finished = true;
+		}
+	}
+}
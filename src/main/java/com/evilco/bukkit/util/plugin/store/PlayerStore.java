@@ -0,0 +1,734 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Stores a fixed-layout record per player outside of the Java heap.
+ * Records are kept in a direct buffer (or a memory-mapped file if the store is persistent) and are addressed through
+ * integer handles which are returned by {@link #find(UUID)} and {@link #acquire(UUID)}. Handles stay valid until their
+ * record is removed or evicted. Records of offline players are evicted once they exceed the time to live and the store
+ * runs out of space (or {@link #evictExpired()} is called).
+ * Stores are not thread-safe and should only be accessed from the main thread. Closed stores reject all accesses with an
+ * {@link IllegalStateException}.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class PlayerStore {
+
+	/**
+	 * Defines the default initial capacity.
+	 */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	/**
+	 * Defines the file magic ("EPST").
+	 */
+	protected static final int MAGIC = 0x45505354;
+
+	/**
+	 * Defines the file format version.
+	 */
+	protected static final int VERSION = 1;
+
+	/**
+	 * Defines the size of the store header (magic, version, layout signature, record size and capacity).
+	 */
+	protected static final int HEADER_SIZE = 32;
+
+	/**
+	 * Defines the size of the record header (unique identifier and state).
+	 */
+	protected static final int RECORD_HEADER_SIZE = 24;
+
+	/**
+	 * Defines the state of free slots (other states are either {@link #STATE_ONLINE} or the time at which the player left).
+	 */
+	protected static final long STATE_FREE = 0;
+
+	/**
+	 * Defines the state of online players.
+	 */
+	protected static final long STATE_ONLINE = -1;
+
+	/**
+	 * Stores the record layout.
+	 */
+	protected final RecordLayout layout;
+
+	/**
+	 * Stores the size of a slot (record header and record).
+	 */
+	protected final int stride;
+
+	/**
+	 * Stores the backing file (or null if the store is not persistent).
+	 */
+	protected final File file;
+
+	/**
+	 * Stores the file channel (if persistent).
+	 */
+	protected FileChannel channel = null;
+
+	/**
+	 * Stores the backing buffer.
+	 */
+	protected ByteBuffer buffer;
+
+	/**
+	 * Stores the amount of slots.
+	 */
+	protected int capacity;
+
+	/**
+	 * Stores the amount of used slots.
+	 */
+	protected int size = 0;
+
+	/**
+	 * Stores the time to live of offline records (in milliseconds, 0 disables eviction).
+	 */
+	protected long timeToLive;
+
+	/**
+	 * Stores all free slots (the lowest slot is on top).
+	 */
+	protected int[] free;
+
+	/**
+	 * Stores the amount of free slots.
+	 */
+	protected int freeCount = 0;
+
+	/**
+	 * Stores the most significant bits of all index keys.
+	 */
+	protected long[] indexMost;
+
+	/**
+	 * Stores the least significant bits of all index keys.
+	 */
+	protected long[] indexLeast;
+
+	/**
+	 * Stores the slots of all index keys (-1 marks empty entries).
+	 */
+	protected int[] indexSlots;
+
+	/**
+	 * Stores the index mask.
+	 */
+	protected int mask;
+
+	/**
+	 * Stores all online players.
+	 */
+	protected final Set<UUID> online = new HashSet<UUID> ();
+
+	/**
+	 * Constructs a new off-heap store.
+	 * @param layout
+	 * @param capacity The initial amount of records.
+	 * @param timeToLive The time to live of offline records (in milliseconds, 0 disables eviction).
+	 */
+	public PlayerStore (RecordLayout layout, int capacity, long timeToLive) {
+		this.layout = layout;
+		this.stride = (RECORD_HEADER_SIZE + layout.getSize ());
+		this.file = null;
+		this.timeToLive = timeToLive;
+
+		this.capacity = Math.max (1, capacity);
+		this.buffer = ByteBuffer.allocateDirect (HEADER_SIZE + this.capacity * this.stride).order (ByteOrder.LITTLE_ENDIAN);
+
+		this.load ();
+	}
+
+	/**
+	 * Constructs a new persistent store (existing records are loaded).
+	 * @param layout
+	 * @param capacity The initial amount of records.
+	 * @param timeToLive The time to live of offline records (in milliseconds, 0 disables eviction).
+	 * @param file
+	 * @throws IOException
+	 */
+	public PlayerStore (RecordLayout layout, int capacity, long timeToLive, File file) throws IOException {
+		this.layout = layout;
+		this.stride = (RECORD_HEADER_SIZE + layout.getSize ());
+		this.file = file;
+		this.timeToLive = timeToLive;
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile (file, "rw");
+
+		try {
+			this.channel = randomAccessFile.getChannel ();
+			this.capacity = Math.max (1, capacity);
+
+			// verify existing header
+			if (this.channel.size () >= HEADER_SIZE) {
+				ByteBuffer header = ByteBuffer.allocate (HEADER_SIZE).order (ByteOrder.LITTLE_ENDIAN);
+				this.channel.read (header, 0);
+
+				if (header.getInt (0) != MAGIC || header.getInt (4) != VERSION) throw new IOException ("File " + file + " is not a player store");
+				if (header.getInt (8) != layout.getSignature () || header.getInt (12) != this.stride) throw new IOException ("The record layout of " + file + " has changed");
+
+				this.capacity = Math.max (this.capacity, header.getInt (16));
+			}
+
+			this.map ();
+		} catch (IOException ex) {
+			randomAccessFile.close ();
+			throw ex;
+		}
+
+		this.load ();
+	}
+
+	/**
+	 * Maps the backing file.
+	 * @throws IOException
+	 */
+	protected void map () throws IOException {
+		this.buffer = this.channel.map (FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + ((long) this.capacity) * this.stride).order (ByteOrder.LITTLE_ENDIAN);
+
+		this.buffer.putInt (0, MAGIC);
+		this.buffer.putInt (4, VERSION);
+		this.buffer.putInt (8, this.layout.getSignature ());
+		this.buffer.putInt (12, this.stride);
+		this.buffer.putInt (16, this.capacity);
+	}
+
+	/**
+	 * Rebuilds the index and the free slots from the buffer (loaded players are considered offline).
+	 */
+	protected void load () {
+		long now = System.currentTimeMillis ();
+
+		this.size = 0;
+		this.freeCount = 0;
+		this.free = new int[this.capacity];
+		this.resizeIndex ();
+
+		for (int slot = (this.capacity - 1); slot >= 0; slot--) {
+			int base = this.getBase (slot);
+			long state = this.buffer.getLong (base + 16);
+
+			if (state == STATE_FREE) {
+				this.free[this.freeCount++] = slot;
+				continue;
+			}
+
+			if (state == STATE_ONLINE) this.buffer.putLong (base + 16, now);
+
+			this.indexPut (this.buffer.getLong (base), this.buffer.getLong (base + 8), slot);
+			this.size++;
+		}
+	}
+
+	/**
+	 * Doubles the capacity.
+	 * @throws IOException
+	 */
+	protected void grow () throws IOException {
+		int previous = this.capacity;
+		this.capacity = (previous * 2);
+
+		// extend buffer
+		if (this.channel != null)
+			this.map ();
+		else {
+			ByteBuffer buffer = ByteBuffer.allocateDirect (HEADER_SIZE + this.capacity * this.stride).order (ByteOrder.LITTLE_ENDIAN);
+
+			this.buffer.clear ();
+			buffer.put (this.buffer);
+			this.buffer = buffer;
+		}
+
+		// extend free slots
+		int[] free = new int[this.capacity];
+		int count = 0;
+
+		for (int slot = (this.capacity - 1); slot >= previous; slot--) free[count++] = slot;
+		System.arraycopy (this.free, 0, free, count, this.freeCount);
+
+		this.free = free;
+		this.freeCount += count;
+
+		// rebuild index
+		long[] most = this.indexMost;
+		long[] least = this.indexLeast;
+		int[] slots = this.indexSlots;
+
+		this.resizeIndex ();
+
+		for (int i = 0; i < slots.length; i++) {
+			if (slots[i] != -1) this.indexPut (most[i], least[i], slots[i]);
+		}
+	}
+
+	/**
+	 * Returns the record of a player (or -1 if the player has no record).
+	 * @param uuid
+	 * @return
+	 */
+	public int find (UUID uuid) {
+		this.ensureOpen ();
+
+		int slot = this.indexGet (uuid.getMostSignificantBits (), uuid.getLeastSignificantBits ());
+		return (slot == -1 ? -1 : this.getBase (slot) + RECORD_HEADER_SIZE);
+	}
+
+	/**
+	 * Returns the record of a player (a zeroed record is created if necessary).
+	 * @param uuid
+	 * @return
+	 * @throws IOException
+	 */
+	public int acquire (UUID uuid) throws IOException {
+		this.ensureOpen ();
+
+		long most = uuid.getMostSignificantBits ();
+		long least = uuid.getLeastSignificantBits ();
+
+		int slot = this.indexGet (most, least);
+		if (slot != -1) return (this.getBase (slot) + RECORD_HEADER_SIZE);
+
+		// make room
+		if (this.freeCount == 0 && this.evictExpired () == 0) this.grow ();
+
+		// initialize record
+		slot = this.free[--this.freeCount];
+		int base = this.getBase (slot);
+
+		for (int i = RECORD_HEADER_SIZE; i < this.stride; i += 8) this.buffer.putLong (base + i, 0);
+
+		this.buffer.putLong (base, most);
+		this.buffer.putLong (base + 8, least);
+		this.buffer.putLong (base + 16, (this.online.contains (uuid) ? STATE_ONLINE : System.currentTimeMillis ()));
+
+		this.indexPut (most, least, slot);
+		this.size++;
+
+		return (base + RECORD_HEADER_SIZE);
+	}
+
+	/**
+	 * Removes the record of a player.
+	 * @param uuid
+	 * @return True if a record has been removed.
+	 */
+	public boolean remove (UUID uuid) {
+		this.ensureOpen ();
+
+		int slot = this.indexGet (uuid.getMostSignificantBits (), uuid.getLeastSignificantBits ());
+		if (slot == -1) return false;
+
+		this.release (slot);
+		return true;
+	}
+
+	/**
+	 * Releases a used slot.
+	 * @param slot
+	 */
+	protected void release (int slot) {
+		int base = this.getBase (slot);
+
+		this.indexRemove (this.buffer.getLong (base), this.buffer.getLong (base + 8));
+		this.buffer.putLong (base + 16, STATE_FREE);
+
+		this.free[this.freeCount++] = slot;
+		this.size--;
+	}
+
+	/**
+	 * Removes all offline records which exceeded the time to live.
+	 * @return The amount of removed records.
+	 */
+	public int evictExpired () {
+		this.ensureOpen ();
+
+		if (this.timeToLive <= 0) return 0;
+
+		long now = System.currentTimeMillis ();
+		int count = 0;
+
+		for (int slot = 0; slot < this.capacity; slot++) {
+			long state = this.buffer.getLong (this.getBase (slot) + 16);
+			if (state <= 0 || (now - state) <= this.timeToLive) continue;
+
+			this.release (slot);
+			count++;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Updates the online state of a player (online records are never evicted).
+	 * @param uuid
+	 * @param online
+	 */
+	public void setOnline (UUID uuid, boolean online) {
+		this.ensureOpen ();
+
+		if (online)
+			this.online.add (uuid);
+		else
+			this.online.remove (uuid);
+
+		// update record
+		int slot = this.indexGet (uuid.getMostSignificantBits (), uuid.getLeastSignificantBits ());
+		if (slot != -1) this.buffer.putLong (this.getBase (slot) + 16, (online ? STATE_ONLINE : System.currentTimeMillis ()));
+	}
+
+	/**
+	 * Writes all changes to disk (if persistent).
+	 */
+	public void flush () {
+		if (this.buffer instanceof MappedByteBuffer) ((MappedByteBuffer) this.buffer).force ();
+	}
+
+	/**
+	 * Flushes and closes the store.
+	 * @throws IOException
+	 */
+	public void close () throws IOException {
+		if (this.buffer == null) return;
+
+		this.flush ();
+		this.buffer = null;
+
+		if (this.channel != null) this.channel.close ();
+	}
+
+	/**
+	 * Checks whether the store has been closed.
+	 * @return
+	 */
+	public boolean isClosed () {
+		return (this.buffer == null);
+	}
+
+	/**
+	 * Verifies that the store is still open.
+	 * @throws IllegalStateException If the store has been closed.
+	 */
+	protected void ensureOpen () {
+		if (this.buffer == null) throw new IllegalStateException ("The player store has been closed");
+	}
+
+	/**
+	 * Returns the buffer.
+	 * @return
+	 * @throws IllegalStateException If the store has been closed.
+	 */
+	protected ByteBuffer getBuffer () {
+		this.ensureOpen ();
+		return this.buffer;
+	}
+
+	/**
+	 * Returns the base address of a slot.
+	 * @param slot
+	 * @return
+	 */
+	protected int getBase (int slot) {
+		return (HEADER_SIZE + slot * this.stride);
+	}
+
+	/**
+	 * Returns the amount of slots.
+	 * @return
+	 */
+	public int getCapacity () {
+		return this.capacity;
+	}
+
+	/**
+	 * Returns the backing file (or null if the store is not persistent).
+	 * @return
+	 */
+	public File getFile () {
+		return this.file;
+	}
+
+	/**
+	 * Returns the record layout.
+	 * @return
+	 */
+	public RecordLayout getLayout () {
+		return this.layout;
+	}
+
+	/**
+	 * Returns the amount of records.
+	 * @return
+	 */
+	public int size () {
+		return this.size;
+	}
+
+	/**
+	 * Sets the time to live of offline records.
+	 * @param timeToLive The time to live (in milliseconds, 0 disables eviction).
+	 */
+	public void setTimeToLive (long timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Allocates an empty index for the current capacity.
+	 */
+	protected void resizeIndex () {
+		int length = Integer.highestOneBit (Math.max (2, this.capacity * 2 - 1)) << 1;
+
+		this.indexMost = new long[length];
+		this.indexLeast = new long[length];
+		this.indexSlots = new int[length];
+		this.mask = (length - 1);
+
+		Arrays.fill (this.indexSlots, -1);
+	}
+
+	/**
+	 * Calculates the index position of a key.
+	 * @param most
+	 * @param least
+	 * @return
+	 */
+	protected int hash (long most, long least) {
+		long hash = ((most ^ least) * 0x9E3779B97F4A7C15L);
+		return ((int) (hash >>> 32) & this.mask);
+	}
+
+	/**
+	 * Returns the slot of a key (or -1).
+	 * @param most
+	 * @param least
+	 * @return
+	 */
+	protected int indexGet (long most, long least) {
+		for (int i = this.hash (most, least); ; i = ((i + 1) & this.mask)) {
+			int slot = this.indexSlots[i];
+
+			if (slot == -1) return -1;
+			if (this.indexMost[i] == most && this.indexLeast[i] == least) return slot;
+		}
+	}
+
+	/**
+	 * Stores the slot of a key.
+	 * @param most
+	 * @param least
+	 * @param slot
+	 */
+	protected void indexPut (long most, long least, int slot) {
+		int i = this.hash (most, least);
+		while (this.indexSlots[i] != -1) i = ((i + 1) & this.mask);
+
+		this.indexMost[i] = most;
+		this.indexLeast[i] = least;
+		this.indexSlots[i] = slot;
+	}
+
+	/**
+	 * Removes a key (following entries are shifted back to keep their probe sequences intact).
+	 * @param most
+	 * @param least
+	 */
+	protected void indexRemove (long most, long least) {
+		int i = this.hash (most, least);
+
+		while (this.indexSlots[i] != -1 && (this.indexMost[i] != most || this.indexLeast[i] != least)) i = ((i + 1) & this.mask);
+		if (this.indexSlots[i] == -1) return;
+
+		// shift following entries
+		int j = i;
+
+		while (true) {
+			j = ((j + 1) & this.mask);
+			if (this.indexSlots[j] == -1) break;
+
+			int home = this.hash (this.indexMost[j], this.indexLeast[j]);
+
+			// entries may only move if their home position is not within (i, j]
+			if (((j - home) & this.mask) < ((j - i) & this.mask)) continue;
+
+			this.indexMost[i] = this.indexMost[j];
+			this.indexLeast[i] = this.indexLeast[j];
+			this.indexSlots[i] = this.indexSlots[j];
+			i = j;
+		}
+
+		this.indexSlots[i] = -1;
+	}
+
+	/**
+	 * Returns a byte field.
+	 * @param record
+	 * @param offset
+	 * @return
+	 */
+	public byte getByte (int record, int offset) {
+		return this.getBuffer ().get (record + offset);
+	}
+
+	/**
+	 * Sets a byte field.
+	 * @param record
+	 * @param offset
+	 * @param value
+	 */
+	public void setByte (int record, int offset, byte value) {
+		this.getBuffer ().put (record + offset, value);
+	}
+
+	/**
+	 * Returns a short field.
+	 * @param record
+	 * @param offset
+	 * @return
+	 */
+	public short getShort (int record, int offset) {
+		return this.getBuffer ().getShort (record + offset);
+	}
+
+	/**
+	 * Sets a short field.
+	 * @param record
+	 * @param offset
+	 * @param value
+	 */
+	public void setShort (int record, int offset, short value) {
+		this.getBuffer ().putShort (record + offset, value);
+	}
+
+	/**
+	 * Returns an int field.
+	 * @param record
+	 * @param offset
+	 * @return
+	 */
+	public int getInt (int record, int offset) {
+		return this.getBuffer ().getInt (record + offset);
+	}
+
+	/**
+	 * Sets an int field.
+	 * @param record
+	 * @param offset
+	 * @param value
+	 */
+	public void setInt (int record, int offset, int value) {
+		this.getBuffer ().putInt (record + offset, value);
+	}
+
+	/**
+	 * Returns a long field.
+	 * @param record
+	 * @param offset
+	 * @return
+	 */
+	public long getLong (int record, int offset) {
+		return this.getBuffer ().getLong (record + offset);
+	}
+
+	/**
+	 * Sets a long field.
+	 * @param record
+	 * @param offset
+	 * @param value
+	 */
+	public void setLong (int record, int offset, long value) {
+		this.getBuffer ().putLong (record + offset, value);
+	}
+
+	/**
+	 * Returns a float field.
+	 * @param record
+	 * @param offset
+	 * @return
+	 */
+	public float getFloat (int record, int offset) {
+		return this.getBuffer ().getFloat (record + offset);
+	}
+
+	/**
+	 * Sets a float field.
+	 * @param record
+	 * @param offset
+	 * @param value
+	 */
+	public void setFloat (int record, int offset, float value) {
+		this.getBuffer ().putFloat (record + offset, value);
+	}
+
+	/**
+	 * Returns a double field.
+	 * @param record
+	 * @param offset
+	 * @return
+	 */
+	public double getDouble (int record, int offset) {
+		return this.getBuffer ().getDouble (record + offset);
+	}
+
+	/**
+	 * Sets a double field.
+	 * @param record
+	 * @param offset
+	 * @param value
+	 */
+	public void setDouble (int record, int offset, double value) {
+		this.getBuffer ().putDouble (record + offset, value);
+	}
+
+	/**
+	 * Returns a boolean field.
+	 * @param record
+	 * @param offset
+	 * @return
+	 */
+	public boolean getBoolean (int record, int offset) {
+		return (this.getBuffer ().get (record + offset) != 0);
+	}
+
+	/**
+	 * Sets a boolean field.
+	 * @param record
+	 * @param offset
+	 * @param value
+	 */
+	public void setBoolean (int record, int offset, boolean value) {
+		this.getBuffer ().put (record + offset, (byte) (value ? 1 : 0));
+	}
+}
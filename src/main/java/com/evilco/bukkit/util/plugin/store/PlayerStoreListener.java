@@ -0,0 +1,150 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.store;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+
+/**
+ * Tracks the online state of players within all stores of a plugin.
+ * Stores are flushed when the plugin is disabled (before its onDisable method is called) and stay open until they are
+ * closed. The listener is detached along with the plugin and replaced when the plugin is enabled again.
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class PlayerStoreListener implements Listener {
+
+	/**
+	 * Stores all open stores.
+	 */
+	protected final List<PlayerStore> stores = new CopyOnWriteArrayList<PlayerStore> ();
+
+	/**
+	 * Stores the parent plugin.
+	 */
+	protected final Plugin plugin;
+
+	/**
+	 * Indicates whether the listener has been unregistered along with its plugin.
+	 */
+	protected volatile boolean detached = false;
+
+	/**
+	 * @param plugin
+	 */
+	public PlayerStoreListener (Plugin plugin) {
+		this.plugin = plugin;
+	}
+
+	/**
+	 * Adds a store (all players which are currently online are marked as online).
+	 * @param store
+	 */
+	public void addStore (PlayerStore store) {
+		for (Player player : this.plugin.getServer ().getOnlinePlayers ()) store.setOnline (player.getUniqueId (), true);
+
+		this.stores.add (store);
+	}
+
+	/**
+	 * Returns all open stores.
+	 * @return
+	 */
+	public List<PlayerStore> getStores () {
+		return this.stores;
+	}
+
+	/**
+	 * Marks joining players as online.
+	 * @param event
+	 */
+	@EventHandler (priority = EventPriority.LOWEST)
+	public void onPlayerJoin (PlayerJoinEvent event) {
+		for (PlayerStore store : this.stores) {
+			if (store.isClosed ())
+				this.stores.remove (store);
+			else
+				store.setOnline (event.getPlayer ().getUniqueId (), true);
+		}
+	}
+
+	/**
+	 * Marks leaving players as offline.
+	 * @param event
+	 */
+	@EventHandler (priority = EventPriority.MONITOR)
+	public void onPlayerQuit (PlayerQuitEvent event) {
+		for (PlayerStore store : this.stores) {
+			if (store.isClosed ())
+				this.stores.remove (store);
+			else
+				store.setOnline (event.getPlayer ().getUniqueId (), false);
+		}
+	}
+
+	/**
+	 * Flushes all stores when the plugin is disabled (listeners are unregistered with their plugin).
+	 * @param event
+	 */
+	@EventHandler (priority = EventPriority.MONITOR)
+	public void onPluginDisable (PluginDisableEvent event) {
+		if (event.getPlugin () != this.plugin) return;
+
+		for (PlayerStore store : this.stores) {
+			if (!store.isClosed ()) store.flush ();
+		}
+
+		this.detached = true;
+	}
+
+	/**
+	 * Checks whether the listener has been unregistered along with its plugin.
+	 * @return
+	 */
+	public boolean isDetached () {
+		return this.detached;
+	}
+
+	/**
+	 * Closes all stores.
+	 */
+	public void closeStores () {
+		for (PlayerStore store : this.stores) {
+			try {
+				store.close ();
+			} catch (IOException ex) {
+				this.plugin.getLogger ().log (Level.WARNING, "Could not close player store " + store.getFile () + ": " + ex.getMessage (), ex);
+			}
+		}
+
+		this.stores.clear ();
+	}
+}
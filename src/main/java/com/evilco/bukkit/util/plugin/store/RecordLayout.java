@@ -0,0 +1,191 @@
+/**
+ * This file is part of plugin.
+ *
+ * Copyright (C) 2013 Evil-Co <http://www.evil-co.com>
+ * plugin is licensed under the GNU Lesser General Public License.
+ *
+ * plugin is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * plugin is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.evilco.bukkit.util.plugin.store;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Describes the fixed layout of the records within a {@link PlayerStore}.
+ * Fields are declared once (before the store is created) and accessed through their offsets, e.g.
+ * <pre>
+ * RecordLayout layout = new RecordLayout ();
+ * int kills = layout.addInt ("kills");
+ * ...
+ * store.setInt (store.acquire (uuid), kills, store.getInt (record, kills) + 1);
+ * </pre>
+ * @auhtor Johannes Donath <johannesd@evil-co.com>
+ * @copyright Copyright (C) 2014 Evil-Co <http://www.evil-co.org>
+ */
+public class RecordLayout {
+
+	/**
+	 * Stores all field offsets by name.
+	 */
+	protected final Map<String, Integer> offsets = new LinkedHashMap<String, Integer> ();
+
+	/**
+	 * Stores all field types by name.
+	 */
+	protected final Map<String, String> types = new HashMap<String, String> ();
+
+	/**
+	 * Stores the current record size.
+	 */
+	protected int size = 0;
+
+	/**
+	 * Adds a boolean field.
+	 * @param name
+	 * @return The field offset.
+	 */
+	public int addBoolean (String name) {
+		return this.add (name, "boolean", 1);
+	}
+
+	/**
+	 * Adds a byte field.
+	 * @param name
+	 * @return The field offset.
+	 */
+	public int addByte (String name) {
+		return this.add (name, "byte", 1);
+	}
+
+	/**
+	 * Adds a double field.
+	 * @param name
+	 * @return The field offset.
+	 */
+	public int addDouble (String name) {
+		return this.add (name, "double", 8);
+	}
+
+	/**
+	 * Adds a float field.
+	 * @param name
+	 * @return The field offset.
+	 */
+	public int addFloat (String name) {
+		return this.add (name, "float", 4);
+	}
+
+	/**
+	 * Adds an integer field.
+	 * @param name
+	 * @return The field offset.
+	 */
+	public int addInt (String name) {
+		return this.add (name, "int", 4);
+	}
+
+	/**
+	 * Adds a long field.
+	 * @param name
+	 * @return The field offset.
+	 */
+	public int addLong (String name) {
+		return this.add (name, "long", 8);
+	}
+
+	/**
+	 * Adds a short field.
+	 * @param name
+	 * @return The field offset.
+	 */
+	public int addShort (String name) {
+		return this.add (name, "short", 2);
+	}
+
+	/**
+	 * Adds a field (fields are aligned to their width).
+	 * @param name
+	 * @param type
+	 * @param width
+	 * @return The field offset.
+	 */
+	protected int add (String name, String type, int width) {
+		if (this.offsets.containsKey (name)) throw new IllegalArgumentException ("Duplicate field \"" + name + "\"");
+
+		int offset = ((this.size + width - 1) & -width);
+
+		this.offsets.put (name, offset);
+		this.types.put (name, type);
+		this.size = (offset + width);
+
+		return offset;
+	}
+
+	/**
+	 * Returns the offset of a field.
+	 * @param name
+	 * @return
+	 */
+	public int getOffset (String name) {
+		Integer offset = this.offsets.get (name);
+		if (offset == null) throw new IllegalArgumentException ("Unknown field \"" + name + "\"");
+
+		return offset;
+	}
+
+	/**
+	 * Returns all field offsets by name.
+	 * @return
+	 */
+	public Map<String, Integer> getOffsets () {
+		return Collections.unmodifiableMap (this.offsets);
+	}
+
+	/**
+	 * Returns the record size (aligned to eight bytes).
+	 * @return
+	 */
+	public int getSize () {
+		return ((this.size + 7) & -8);
+	}
+
+	/**
+	 * Returns the type of a field.
+	 * @param name
+	 * @return The type name (e.g. "int") or null if no such field exists.
+	 */
+	public String getType (String name) {
+		return this.types.get (name);
+	}
+
+	/**
+	 * Returns a hash of all fields in declaration order (used to detect layout changes in persisted stores).
+	 * Names, types and offsets are included, thus changing the type of a field is detected even if its offset stays.
+	 * @return
+	 */
+	public int getSignature () {
+		int signature = 0;
+
+		for (Map.Entry<String, Integer> field : this.offsets.entrySet ()) {
+			signature = (signature * 31 + field.getKey ().hashCode ());
+			signature = (signature * 31 + this.types.get (field.getKey ()).hashCode ());
+			signature = (signature * 31 + field.getValue ());
+		}
+
+		return (signature * 31 + this.getSize ());
+	}
+}